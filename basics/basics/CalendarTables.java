@@ -0,0 +1,124 @@
+package basics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Month names, month lengths and day-of-year offsets, computed once and shared by everyone.
+ *
+ * CreatingGlobalVariables builds a months array for every instance, and the static array of
+ * StaticGlobalVariables can be changed by any code that gets hold of it, so careful callers
+ * copy it. The tables here are private flat arrays, built once when the class is loaded, and
+ * only their values are handed out, so they can't be changed and need no copies. Common and
+ * leap years are two rows of each table, picked with isLeapYear(), and every lookup is one
+ * array access:
+ *
+ *   int days = CalendarTables.daysInMonth(2024, 2);            //29
+ *   int dayOfYear = CalendarTables.dayOfYear(2023, 3, 1);      //60
+ *   int month = CalendarTables.monthOfDayOfYear(2024, 60);     //2, the 29th of February
+ *
+ * Months are 1 to 12 and days of the year 1 to 365 or 366, as in java.time. Years follow the
+ * proleptic Gregorian calendar.
+ */
+public final class CalendarTables {
+
+	public static final int MONTHS = 12;
+	public static final int DAYS_IN_COMMON_YEAR = 365;
+	public static final int DAYS_IN_LEAP_YEAR = 366;
+
+	private static final String[] MONTH_NAMES = { "Jan", "Feb", "Mar", "April", "May", "June", "July", "Aug", "Sep",
+			"Oct", "Nov", "Dec" };
+	private static final List<String> MONTH_NAME_LIST = Collections.unmodifiableList(Arrays.asList(MONTH_NAMES.clone()));
+
+	//[leap * 12 + month - 1]
+	private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31, 31, 29, 31, 30, 31,
+			30, 31, 31, 30, 31, 30, 31 };
+	//[leap * 13 + month - 1], the days of the year before the first of the month, the 13th is the whole year
+	private static final int[] DAYS_BEFORE_MONTH = new int[2 * (MONTHS + 1)];
+	//[leap * 366 + dayOfYear - 1]
+	private static final byte[] MONTH_OF_DAY = new byte[2 * DAYS_IN_LEAP_YEAR];
+
+	static {
+		for (int leap = 0; leap < 2; leap++) {
+			int day = 0;
+			for (int month = 1; month <= MONTHS; month++) {
+				DAYS_BEFORE_MONTH[leap * (MONTHS + 1) + month - 1] = day;
+				int days = DAYS_IN_MONTH[leap * MONTHS + month - 1];
+				Arrays.fill(MONTH_OF_DAY, leap * DAYS_IN_LEAP_YEAR + day, leap * DAYS_IN_LEAP_YEAR + day + days, (byte) month);
+				day += days;
+			}
+			DAYS_BEFORE_MONTH[leap * (MONTHS + 1) + MONTHS] = day;
+		}
+	}
+
+	private CalendarTables() {
+	}
+
+	public static boolean isLeapYear(int year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	private static int leap(int year) {
+		return isLeapYear(year) ? 1 : 0;
+	}
+
+	public static int daysInYear(int year) {
+		return isLeapYear(year) ? DAYS_IN_LEAP_YEAR : DAYS_IN_COMMON_YEAR;
+	}
+
+	public static int daysInMonth(int year, int month) {
+		checkMonth(month);
+		return DAYS_IN_MONTH[leap(year) * MONTHS + month - 1];
+	}
+
+	//The days of the year before the first of the month, 0 for January.
+	public static int daysBeforeMonth(int year, int month) {
+		checkMonth(month);
+		return DAYS_BEFORE_MONTH[leap(year) * (MONTHS + 1) + month - 1];
+	}
+
+	public static int dayOfYear(int year, int month, int dayOfMonth) {
+		int leap = leap(year);
+		checkMonth(month);
+		if (dayOfMonth < 1 || dayOfMonth > DAYS_IN_MONTH[leap * MONTHS + month - 1]) {
+			throw new IllegalArgumentException("no day " + dayOfMonth + " in month " + month + " of " + year);
+		}
+		return DAYS_BEFORE_MONTH[leap * (MONTHS + 1) + month - 1] + dayOfMonth;
+	}
+
+	public static int monthOfDayOfYear(int year, int dayOfYear) {
+		int leap = leap(year);
+		checkDayOfYear(year, leap, dayOfYear);
+		return MONTH_OF_DAY[leap * DAYS_IN_LEAP_YEAR + dayOfYear - 1];
+	}
+
+	public static int dayOfMonth(int year, int dayOfYear) {
+		int leap = leap(year);
+		checkDayOfYear(year, leap, dayOfYear);
+		int month = MONTH_OF_DAY[leap * DAYS_IN_LEAP_YEAR + dayOfYear - 1];
+		return dayOfYear - DAYS_BEFORE_MONTH[leap * (MONTHS + 1) + month - 1];
+	}
+
+	public static String monthName(int month) {
+		checkMonth(month);
+		return MONTH_NAMES[month - 1];
+	}
+
+	//The twelve names, in a list that can't be changed and so can be shared without a copy.
+	public static List<String> monthNames() {
+		return MONTH_NAME_LIST;
+	}
+
+	private static void checkMonth(int month) {
+		if (month < 1 || month > MONTHS) {
+			throw new IllegalArgumentException("month must be 1 to 12, was " + month);
+		}
+	}
+
+	private static void checkDayOfYear(int year, int leap, int dayOfYear) {
+		if (dayOfYear < 1 || dayOfYear > DAYS_IN_COMMON_YEAR + leap) {
+			throw new IllegalArgumentException("no day " + dayOfYear + " in " + year);
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package basics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Reuses the char[] behind PooledStringBuilder instead of leaving it to the garbage collector.
+ *
+ * Arrays are kept by size class (powers of two from 16 to 1M chars), acquire() returns an array
+ * of the next size class up, which may still hold old characters. Larger arrays are allocated
+ * and dropped as usual. A released array must not be used any more by whoever released it.
+ *
+ * NONE        - no pooling, acquire() allocates an array of exactly the asked size
+ * threadLocal - a few arrays per size class and thread, so never contended. An
+ *               array released on another thread than the one it came from changes pool
+ * striped     - pools shared by all threads, spread over stripes picked by thread id to keep
+ *               contention down, taken and returned with a single atomic operation
+ */
+public interface CharArrayPool {
+
+	int MIN_CLASS = 4;
+	int MAX_CLASS = 20;
+
+	CharArrayPool NONE = new CharArrayPool() {
+		@Override
+		public char[] acquire(int minCapacity) {
+			return new char[minCapacity];
+		}
+
+		@Override
+		public void release(char[] array) {
+		}
+	};
+
+	char[] acquire(int minCapacity);
+
+	void release(char[] array);
+
+	static CharArrayPool threadLocal(int arraysPerClass) {
+		ThreadLocal<Slots> slots = ThreadLocal.withInitial(() -> new Slots(arraysPerClass));
+		return new CharArrayPool() {
+			@Override
+			public char[] acquire(int minCapacity) {
+				return slots.get().acquire(minCapacity);
+			}
+
+			@Override
+			public void release(char[] array) {
+				slots.get().release(array);
+			}
+		};
+	}
+
+	static CharArrayPool striped(int stripes, int arraysPerClass) {
+		if (stripes < 1) {
+			throw new IllegalArgumentException("stripes must be at least 1, was " + stripes);
+		}
+		Slots[] all = new Slots[stripes];
+		for (int i = 0; i < stripes; i++) {
+			all[i] = new Slots(arraysPerClass);
+		}
+		return new CharArrayPool() {
+			@Override
+			public char[] acquire(int minCapacity) {
+				return stripe().acquire(minCapacity);
+			}
+
+			@Override
+			public void release(char[] array) {
+				stripe().release(array);
+			}
+
+			private Slots stripe() {
+				return all[(int) (Thread.currentThread().getId() % stripes)];
+			}
+		};
+	}
+
+	//Index of the size class of an array length, -1 if arrays of that length are not pooled.
+	static int sizeClassOf(int length) {
+		if (length < 1 << MIN_CLASS || length > 1 << MAX_CLASS || (length & (length - 1)) != 0) {
+			return -1;
+		}
+		return Integer.numberOfTrailingZeros(length) - MIN_CLASS;
+	}
+
+	//Pooled arrays of one pool (or stripe), "arraysPerClass" slots for every size class.
+	final class Slots {
+
+		private final int arraysPerClass;
+		private final AtomicReferenceArray<char[]> slots;
+
+		Slots(int arraysPerClass) {
+			if (arraysPerClass < 1) {
+				throw new IllegalArgumentException("arraysPerClass must be at least 1, was " + arraysPerClass);
+			}
+			this.arraysPerClass = arraysPerClass;
+			this.slots = new AtomicReferenceArray<>((MAX_CLASS - MIN_CLASS + 1) * arraysPerClass);
+		}
+
+		char[] acquire(int minCapacity) {
+			long size = GrowthPolicy.sizeClass(minCapacity);
+			int sizeClass = size > 1 << MAX_CLASS ? -1 : sizeClassOf((int) size);
+			if (sizeClass < 0) {
+				return new char[minCapacity];
+			}
+			for (int i = sizeClass * arraysPerClass, end = i + arraysPerClass; i < end; i++) {
+				if (slots.get(i) != null) {
+					char[] array = slots.getAndSet(i, null);
+					if (array != null) {
+						return array;
+					}
+				}
+			}
+			return new char[(int) size];
+		}
+
+		void release(char[] array) {
+			int sizeClass = sizeClassOf(array.length);
+			if (sizeClass < 0) {
+				return;
+			}
+			for (int i = sizeClass * arraysPerClass, end = i + arraysPerClass; i < end; i++) {
+				if (slots.get(i) == null && slots.compareAndSet(i, null, array)) {
+					return;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package basics;
+
+import java.util.function.IntPredicate;
+
+/*
+ * A set of chars for TextScan, tested with a bit mask instead of a lambda call per char.
+ *
+ * The 128 ASCII chars are two longs of bits, so contains() is a shift and an AND for them. Chars
+ * above ASCII go to a fallback predicate, e.g. Character::isWhitespace, or are not contained
+ * when there is none. Text that is mostly ASCII therefore never leaves the mask.
+ *
+ *   CharClass separators = CharClass.of(",;").or(CharClass.WHITESPACE);
+ */
+public final class CharClass {
+
+	public static final CharClass NONE = new CharClass(0, 0, null);
+	public static final CharClass ASCII_DIGIT = range('0', '9');
+	public static final CharClass ASCII_UPPER = range('A', 'Z');
+	public static final CharClass ASCII_LOWER = range('a', 'z');
+	public static final CharClass ASCII_LETTER = ASCII_UPPER.or(ASCII_LOWER);
+	public static final CharClass ASCII_ALNUM = ASCII_LETTER.or(ASCII_DIGIT);
+	public static final CharClass ASCII_WHITESPACE = of(" \t\n\u000B\f\r");
+	public static final CharClass ASCII_PUNCTUATION = of("!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~");
+	public static final CharClass ASCII_CONTROL = range('\0', '\u001F').or(of("\u007F"));
+	public static final CharClass DIGIT = ASCII_DIGIT.orAbove(Character::isDigit);
+	public static final CharClass LETTER = ASCII_LETTER.orAbove(Character::isLetter);
+	public static final CharClass LETTER_OR_DIGIT = ASCII_ALNUM.orAbove(Character::isLetterOrDigit);
+	//Character.isWhitespace(), which also counts the separators U+001C..U+001F.
+	public static final CharClass WHITESPACE = ASCII_WHITESPACE.or(range('\u001C', '\u001F'))
+			.orAbove(Character::isWhitespace);
+
+	private final long low;
+	private final long high;
+	private final IntPredicate above;
+
+	private CharClass(long low, long high, IntPredicate above) {
+		this.low = low;
+		this.high = high;
+		this.above = above;
+	}
+
+	//The given chars, all of which must be ASCII.
+	public static CharClass of(String chars) {
+		long low = 0;
+		long high = 0;
+		for (int i = 0; i < chars.length(); i++) {
+			char c = chars.charAt(i);
+			if (c >= 128) {
+				throw new IllegalArgumentException("not an ASCII char: " + c + ", use orAbove()");
+			}
+			if (c < 64) {
+				low |= 1L << c;
+			} else {
+				high |= 1L << c;
+			}
+		}
+		return new CharClass(low, high, null);
+	}
+
+	public static CharClass range(char from, char to) {
+		if (from > to || to >= 128) {
+			throw new IllegalArgumentException("not an ASCII range: " + (int) from + ".." + (int) to);
+		}
+		long low = 0;
+		long high = 0;
+		for (char c = from; c <= to; c++) {
+			if (c < 64) {
+				low |= 1L << c;
+			} else {
+				high |= 1L << c;
+			}
+		}
+		return new CharClass(low, high, null);
+	}
+
+	//This class for ASCII, and the chars above ASCII that match "predicate".
+	public CharClass orAbove(IntPredicate predicate) {
+		IntPredicate both = above == null ? predicate : above.or(predicate);
+		return new CharClass(low, high, both);
+	}
+
+	public CharClass or(CharClass other) {
+		IntPredicate both = above == null ? other.above : other.above == null ? above : above.or(other.above);
+		return new CharClass(low | other.low, high | other.high, both);
+	}
+
+	public CharClass negate() {
+		IntPredicate outside = above == null ? c -> true : above.negate();
+		return new CharClass(~low, ~high, outside);
+	}
+
+	//A shift uses the low six bits of c only, so c < 64 picks its bit from "low" and 64..127 from "high".
+	public boolean contains(int c) {
+		if (c >>> 7 == 0) {
+			return ((c < 64 ? low : high) >>> c & 1) != 0;
+		}
+		return c >= 0 && above != null && above.test(c);
+	}
+
+	//The only char of the class, or -1 if it has none or more than one. TextScan compares with it directly.
+	int single() {
+		if (above != null || Long.bitCount(low) + Long.bitCount(high) != 1) {
+			return -1;
+		}
+		return low != 0 ? Long.numberOfTrailingZeros(low) : 64 + Long.numberOfTrailingZeros(high);
+	}
+}
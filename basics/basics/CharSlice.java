@@ -0,0 +1,92 @@
+package basics;
+
+/*
+ * A range of another CharSequence, without copying its chars.
+ *
+ * Tokenizer returns its tokens as CharSlices, so splitting a big text allocates one small
+ * object per token instead of a String with its own array. A slice reads through to its
+ * source, so the source must not change while slices of it are used. toString() copies the
+ * range into a String when one is needed after all.
+ *
+ * Two slices are equal if they hold the same chars, and hashCode() is the one of the String
+ * with these chars. A slice is never equal to a String, use contentEquals() for that.
+ */
+public final class CharSlice implements CharSequence {
+
+	private final CharSequence source;
+	private final int start;
+	private final int end;
+
+	public CharSlice(CharSequence source, int start, int end) {
+		if (start < 0 || start > end || end > source.length()) {
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + source.length());
+		}
+		this.source = source;
+		this.start = start;
+		this.end = end;
+	}
+
+	@Override
+	public int length() {
+		return end - start;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= end - start) {
+			throw new IndexOutOfBoundsException("index " + index + ", length " + (end - start));
+		}
+		return source.charAt(start + index);
+	}
+
+	@Override
+	public CharSlice subSequence(int from, int to) {
+		if (from < 0 || from > to || to > end - start) {
+			throw new IndexOutOfBoundsException("start " + from + ", end " + to + ", length " + (end - start));
+		}
+		return new CharSlice(source, start + from, start + to);
+	}
+
+	//The position of the slice in its source.
+	public int start() {
+		return start;
+	}
+
+	public int end() {
+		return end;
+	}
+
+	public boolean contentEquals(CharSequence other) {
+		if (other.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < end - start; i++) {
+			if (source.charAt(start + i) != other.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof CharSlice && contentEquals((CharSlice) other);
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + source.charAt(i);
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		if (source instanceof String) {
+			return ((String) source).substring(start, end);
+		}
+		return new java.lang.StringBuilder(end - start).append(source, start, end).toString();
+	}
+}
@@ -0,0 +1,180 @@
+package basics;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/*
+ * Append-only list stored as a chain of array chunks.
+ *
+ * add() writes into the last chunk and only allocates a new chunk (twice as big as the
+ * previous one, up to MAX_CHUNK) when it is full, so there is no per-element node like in a
+ * LinkedList and no copying on growth like in an ArrayList. append() links the chunks of
+ * another list after ours in O(1), which is what makes it a cheap combiner for parallel
+ * collectors. get(index) walks the chunks, so iterate instead of indexing where possible.
+ */
+public final class ChunkedList<T> extends AbstractList<T> {
+
+	static final int MIN_CHUNK = 16;
+	static final int MAX_CHUNK = 1 << 14;
+
+	private static final class Chunk {
+		final Object[] items;
+		int count;
+		Chunk next;
+
+		Chunk(int capacity) {
+			items = new Object[capacity];
+		}
+	}
+
+	private Chunk head;
+	private Chunk tail;
+	private int size;
+
+	public ChunkedList() {
+	}
+
+	//The first chunk gets room for "expectedSize" elements, at most MAX_CHUNK, and later chunks double from there.
+	public ChunkedList(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("expectedSize must not be negative, was " + expectedSize);
+		}
+		if (expectedSize > 0) {
+			head = tail = new Chunk(java.lang.Math.min(expectedSize, MAX_CHUNK));
+		}
+	}
+
+	@Override
+	public boolean add(T item) {
+		Chunk chunk = tail;
+		if (chunk == null || chunk.count == chunk.items.length) {
+			chunk = new Chunk(chunk == null ? MIN_CHUNK : java.lang.Math.min(chunk.items.length * 2, MAX_CHUNK));
+			if (tail == null) {
+				head = chunk;
+			} else {
+				tail.next = chunk;
+			}
+			tail = chunk;
+		}
+		chunk.items[chunk.count++] = item;
+		size++;
+		modCount++;
+		return true;
+	}
+
+	/*
+	 * Moves all elements of "other" to the end of this list in O(1) and returns this list.
+	 * "other" is left empty. Chunks that are not full stay in the middle of the chain, later
+	 * adds go to the last chunk.
+	 */
+	public ChunkedList<T> append(ChunkedList<T> other) {
+		if (other == this) {
+			throw new IllegalArgumentException("cannot append a list to itself");
+		}
+		if (other.head == null) {
+			return this;
+		}
+		if (head == null) {
+			head = other.head;
+		} else {
+			tail.next = other.head;
+		}
+		tail = other.tail;
+		size += other.size;
+		modCount++;
+		other.head = other.tail = null;
+		other.size = 0;
+		other.modCount++;
+		return this;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+		}
+		Chunk chunk = head;
+		while (index >= chunk.count) {
+			index -= chunk.count;
+			chunk = chunk.next;
+		}
+		return (T) chunk.items[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		head = tail = null;
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void forEach(Consumer<? super T> action) {
+		for (Chunk chunk = head; chunk != null; chunk = chunk.next) {
+			for (int i = 0; i < chunk.count; i++) {
+				action.accept((T) chunk.items[i]);
+			}
+		}
+	}
+
+	@Override
+	public Object[] toArray() {
+		return copyInto(new Object[size]);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <E> E[] toArray(E[] array) {
+		if (array.length < size) {
+			array = (E[]) java.lang.reflect.Array.newInstance(array.getClass().getComponentType(), size);
+		} else if (array.length > size) {
+			array[size] = null;
+		}
+		copyInto(array);
+		return array;
+	}
+
+	private Object[] copyInto(Object[] array) {
+		int offset = 0;
+		for (Chunk chunk = head; chunk != null; chunk = chunk.next) {
+			System.arraycopy(chunk.items, 0, array, offset, chunk.count);
+			offset += chunk.count;
+		}
+		return array;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private Chunk chunk = head;
+			private int index;
+
+			@Override
+			public boolean hasNext() {
+				while (chunk != null && index == chunk.count) {
+					chunk = chunk.next;
+					index = 0;
+				}
+				return chunk != null;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return (T) chunk.items[index++];
+			}
+		};
+	}
+}
@@ -1,15 +1,17 @@
 package basics;
 
+import java.util.List;
+
 public class CreatingGlobalVariables {
 
-	int daysInYear = 365;
-	String[] months = {"Jan","Feb","Mar","April","May","June","July","Aug","Sep","Oct","Nov","Dec"};
+	//Constants of the class, not fields of every instance. The list is unmodifiable, so it can be shared.
+	static final int daysInYear = CalendarTables.DAYS_IN_COMMON_YEAR;
+	static final List<String> months = CalendarTables.monthNames();
 	
 	public static void main(String[] args) {
 		// TODO Auto-generated method stub
 
-		CreatingGlobalVariables g = new CreatingGlobalVariables();
-		System.out.println(g.daysInYear);
+		System.out.println(daysInYear);
 	}
 
 //	public static int getDaysinYear() {
@@ -13,4 +13,25 @@ public static void main(String[] args) {
 		// guide: https://rollbar.com/guides/java/how-to-throw-exceptions-in-java/# 
 		throw new Exception();
 	}
+
+	//new Exception() fills in the stack trace of the thread, which is most of its cost.
+	//In a loop that throws and catches millions of times, use one of these instead,
+	//benchmarks/ExceptionsBenchmark compares them
+	static final StacklessException MUST_THROW = new StacklessException("must throw");
+
+	public void mustThrowStackless() throws StacklessException {
+		//no stack trace is recorded, only the object is allocated
+		throw new StacklessException("must throw");
+	}
+
+	public void mustThrowPreallocated() throws StacklessException {
+		//one shared instance, nothing is allocated at all
+		//getStackTrace() is empty so the catch block can't tell where it came from
+		throw MUST_THROW;
+	}
+
+	public Result<Void> mustFail() {
+		//no throw at all, the caller checks isOk()
+		return Result.failure("must fail");
+	}
 }
@@ -0,0 +1,329 @@
+package basics;
+
+/*
+ * The "fast" tier of basics.Math: approximations of the slow transcendental functions for hot
+ * paths like scoring, where a relative error around 1e-7 is fine.
+ *
+ * exp and log use a table lookup (64 powers of two for exp, 128 logarithms for log) and a
+ * polynomial of degree 2 or 3 on the small remainder. sin, cos and tan reduce the argument to
+ * [-pi/4, pi/4] and evaluate a polynomial of degree 7 or 8, atan2 uses a table of 33
+ * arctangents and a cubic, and cbrt refines a bit-level first guess of 1 / cbrt(x) with three
+ * Newton steps, which need no division. Tables are filled with StrictMath and the class is
+ * strictfp, so every platform gets bit for bit the same results.
+ *
+ * pow(x, y) is exp(y * log(x)), and an error e in log(x) becomes an error of about |y| * e in
+ * the result, up to 745 * e where the result is still a double. So pow takes the logarithm
+ * from the same table with a longer polynomial, good to about 1e-16, and only the exp is fast.
+ *
+ * Largest relative error against java.lang.Math (checked by FastMathAccuracy). For results
+ * below Double.MIN_NORMAL the error is taken relative to Double.MIN_NORMAL instead:
+ *
+ *   exp, log, log10       1e-7
+ *   pow                   1e-7   for every y, also where |y * log(x)| is large
+ *   sin, cos              1e-7   for |x| < 2^19 * pi / 2, larger arguments use StrictMath
+ *   tan                   1e-7   idem
+ *   atan2                 1e-7
+ *   cbrt                  1e-7
+ *   hypot                 1e-15
+ *
+ * Special values (NaN, infinities, zeros, negative bases in pow) give the same results as
+ * java.lang.Math, most of them by falling back to StrictMath.
+ */
+public final strictfp class FastMath {
+
+	static final double EXP_LOG_ERROR = 1e-7;
+	static final double POW_ERROR = 1e-7;
+	static final double TRIG_ERROR = 1e-7;
+	static final double ATAN2_ERROR = 1e-7;
+	static final double CBRT_ERROR = 1e-7;
+	static final double HYPOT_ERROR = 1e-15;
+
+	private static final double LN2_HI = 6.93147180369123816490e-01;
+	private static final double LN2_LO = 1.90821492927058770002e-10;
+	private static final double LN2_64 = 6.93147180559945309417e-01 / 64;
+	private static final double INV_LN2_64 = 64 / 6.93147180559945309417e-01;
+	private static final double INV_LN10 = 4.34294481903251827651e-01;
+	private static final double EXP_OVERFLOW = 7.09782712893383973096e+02;
+	private static final double EXP_UNDERFLOW = -7.45133219101941108420e+02;
+	//Adding 1.5 * 2^52 rounds to an integer that ends up in the low bits of the sum, much cheaper than rint().
+	private static final double SHIFTER = 6.75539944105574400000e+15;
+
+	private static final double TWO_OVER_PI = 6.36619772367581382433e-01;
+	private static final double PIO2_1 = 1.57079632673412561417e+00;
+	private static final double PIO2_2 = 6.07710050630396597660e-11;
+	private static final double PIO2_3 = 2.02226624871116645580e-21;
+	private static final double TRIG_LIMIT = (1 << 19) * 1.57079632679489655800e+00;
+	private static final double PI = 3.14159265358979311600e+00;
+	private static final double PI_HALF = 1.57079632679489655800e+00;
+
+	private static final double TWO_54 = 1.80143985094819840000e+16;
+	//Squares of numbers between these don't overflow or lose precision as subnormals.
+	private static final double HYPOT_MAX = 0x1p500;
+	private static final double HYPOT_MIN = 0x1p-500;
+	//Minus a third of the bits of x about gives 1 / cbrt(x), with this bias within 7 percent.
+	private static final long INV_CBRT_BIAS = 0x553EF00000000000L;
+
+	//2^(j/64)
+	private static final double[] EXP_TABLE = new double[64];
+	//1/c and log(c) for c = 1 + (i + 0.5)/128, the center of the i-th 1/128 wide slice of [1, 2).
+	//From slice LOG_HALF on, past sqrt(2), LOG_TABLE holds log(c / 2) and the exponent is one higher,
+	//so that arguments just below 1 don't subtract two nearly equal logarithms.
+	private static final int LOG_HALF = 53;
+	private static final double[] LOG_INV = new double[128];
+	private static final double[] LOG_TABLE = new double[128];
+	//atan(i/32)
+	private static final double[] ATAN_TABLE = new double[33];
+
+	static {
+		for (int j = 0; j < EXP_TABLE.length; j++) {
+			EXP_TABLE[j] = StrictMath.pow(2, j / 64.0);
+		}
+		for (int i = 0; i < LOG_INV.length; i++) {
+			LOG_INV[i] = 1 / (1 + (i + 0.5) / 128);
+			LOG_TABLE[i] = -StrictMath.log(i < LOG_HALF ? LOG_INV[i] : 2 * LOG_INV[i]);
+		}
+		for (int i = 0; i < ATAN_TABLE.length; i++) {
+			ATAN_TABLE[i] = StrictMath.atan(i / 32.0);
+		}
+	}
+
+	private FastMath() {
+	}
+
+	public static double exp(double x) {
+		if (!(x > -708 && x < 709)) {
+			return expOutsideNormalRange(x);
+		}
+		//x = n * ln2 / 64 + r with |r| <= ln2 / 128, and exp(x) = 2^(n / 64) * exp(r)
+		double shifted = x * INV_LN2_64 + SHIFTER;
+		int n = (int) Double.doubleToRawLongBits(shifted);
+		double r = x - (shifted - SHIFTER) * LN2_64;
+		double t = EXP_TABLE[n & 63];
+		//The result is a normal double here, so 2^(n >> 6) can be added straight to its exponent bits.
+		return Double.longBitsToDouble(Double.doubleToRawLongBits(t + t * expm1Poly(r)) + ((long) (n >> 6) << 52));
+	}
+
+	private static double expOutsideNormalRange(double x) {
+		if (x != x) {
+			return x;
+		}
+		if (x > EXP_OVERFLOW) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if (x < EXP_UNDERFLOW) {
+			return 0;
+		}
+		int n = (int) java.lang.Math.rint(x * INV_LN2_64);
+		double t = EXP_TABLE[n & 63];
+		double y = scale(t + t * expm1Poly(x - n * LN2_64), n >> 6);
+		//Just below EXP_OVERFLOW the exact result is a double, the approximation may be a little above MAX_VALUE.
+		return y == Double.POSITIVE_INFINITY ? Double.MAX_VALUE : y;
+	}
+
+	//exp(r) - 1 for |r| <= ln2 / 128, the r^3 / 6 left out is below 3e-8
+	private static double expm1Poly(double r) {
+		return r + r * r * 0.5;
+	}
+
+	//y * 2^k, in two steps when 2^k itself is not a normal double
+	private static double scale(double y, int k) {
+		if (k > 1000 || k < -1000) {
+			int half = k / 2;
+			return y * twoTo(half) * twoTo(k - half);
+		}
+		return y * twoTo(k);
+	}
+
+	private static double twoTo(int k) {
+		return Double.longBitsToDouble((long) (k + 1023) << 52);
+	}
+
+	public static double log(double x) {
+		return log(x, false);
+	}
+
+	/*
+	 * "precise" adds the terms of the series up to r^6 and r^8, for about 1e-16 instead of 1e-8.
+	 * It is a constant at every call site, so the JIT compiles two versions without the branch.
+	 */
+	private static double log(double x, boolean precise) {
+		if (!(x > 0) || x == Double.POSITIVE_INFINITY) {
+			return x == 0 ? Double.NEGATIVE_INFINITY : x < 0 ? Double.NaN : x;
+		}
+		double r = x - 1;
+		if (r < 1.0 / 64 && r > -1.0 / 64) {
+			//Close to 1 the table would cancel against the exponent, use the series of log(1 + r) alone.
+			if (precise) {
+				return r - r * r * (0.5 - r * (1.0 / 3 - r * (0.25 - r * (0.2 - r * (1.0 / 6 - r * (1.0 / 7 - r * 0.125))))));
+			}
+			return r - r * r * (0.5 - r * (1.0 / 3 - r * 0.25));
+		}
+		int exponent = 0;
+		if (x < Double.MIN_NORMAL) {
+			x *= TWO_54;
+			exponent = -54;
+		}
+		long bits = Double.doubleToRawLongBits(x);
+		exponent += (int) (bits >>> 52) - 1023;
+		int i = (int) (bits >>> 45) & 127;
+		//One more for slices from LOG_HALF on, without a branch that random arguments would mispredict
+		exponent += (i + 128 - LOG_HALF) >> 7;
+		double m = Double.longBitsToDouble((bits & 0x000FFFFFFFFFFFFFL) | 0x3FF0000000000000L);
+		r = m * LOG_INV[i] - 1;
+		//|r| <= 1/256
+		double p = precise ? r - r * r * (0.5 - r * (1.0 / 3 - r * (0.25 - r * (0.2 - r * (1.0 / 6)))))
+				: r - r * r * (0.5 - r * (1.0 / 3));
+		return exponent * LN2_HI + (LOG_TABLE[i] + p + exponent * LN2_LO);
+	}
+
+	public static double log10(double x) {
+		return log(x) * INV_LN10;
+	}
+
+	public static double pow(double x, double y) {
+		if (y == 0) {
+			return 1;
+		}
+		if (!(x > 0) || x == Double.POSITIVE_INFINITY || y != y || java.lang.Math.abs(y) == Double.POSITIVE_INFINITY) {
+			return StrictMath.pow(x, y);
+		}
+		return exp(y * log(x, true));
+	}
+
+	public static double sin(double x) {
+		if (!(java.lang.Math.abs(x) < TRIG_LIMIT)) {
+			return StrictMath.sin(x);
+		}
+		int n = quadrant(x);
+		double r = reduce(x, n);
+		//Quadrants 0 to 3 give sin(r), cos(r), -sin(r), -cos(r)
+		return select(sinPoly(r), cosPoly(r), n, n);
+	}
+
+	public static double cos(double x) {
+		if (!(java.lang.Math.abs(x) < TRIG_LIMIT)) {
+			return StrictMath.cos(x);
+		}
+		int n = quadrant(x);
+		double r = reduce(x, n);
+		//Quadrants 0 to 3 give cos(r), -sin(r), -cos(r), sin(r)
+		return select(cosPoly(r), sinPoly(r), n, n + 1);
+	}
+
+	public static double tan(double x) {
+		if (!(java.lang.Math.abs(x) < TRIG_LIMIT)) {
+			return StrictMath.tan(x);
+		}
+		int n = quadrant(x);
+		double r = reduce(x, n);
+		double sin = sinPoly(r);
+		double cos = cosPoly(r);
+		//Quadrants 0 and 2 give sin(r) / cos(r), 1 and 3 give -cos(r) / sin(r)
+		return select(sin, cos, n, n) / select(cos, sin, n, n + 1);
+	}
+
+	/*
+	 * "even" if bit 0 of "choice" is clear, "odd" otherwise, negated if bit 1 of "sign" is set.
+	 * Done on the bits rather than with branches: the quadrant of random arguments can't be
+	 * predicted, and a mispredicted branch costs more than the whole polynomial.
+	 */
+	private static double select(double even, double odd, int choice, int sign) {
+		long mask = -(long) (choice & 1);
+		long bits = (Double.doubleToRawLongBits(even) & ~mask) | (Double.doubleToRawLongBits(odd) & mask);
+		return Double.longBitsToDouble(bits ^ ((long) (sign & 2) << 62));
+	}
+
+	private static int quadrant(double x) {
+		return (int) Double.doubleToRawLongBits(x * TWO_OVER_PI + SHIFTER);
+	}
+
+	//x - n * pi / 2, with pi / 2 split in three parts so that the products with n are exact.
+	private static double reduce(double x, int n) {
+		return ((x - n * PIO2_1) - n * PIO2_2) - n * PIO2_3;
+	}
+
+	/*
+	 * Minimax polynomials of degree 7 and 8 for |r| <= pi / 4, with the coefficients of the
+	 * single precision sinf and cosf of the Cephes library: 4e-9 and 2e-10 relative error, where
+	 * the Taylor series of the same degree are off by 5e-7 and 4e-8.
+	 */
+	private static double sinPoly(double r) {
+		if (r == 0) {
+			//r + a product of zeros would be +0.0 for r = -0.0
+			return r;
+		}
+		double r2 = r * r;
+		return r + r * r2 * (-1.6666654611e-1 + r2 * (8.3321608736e-3 + r2 * -1.9515295891e-4));
+	}
+
+	private static double cosPoly(double r) {
+		double r2 = r * r;
+		return 1 - 0.5 * r2 + r2 * r2 * (4.166664568298827e-2 + r2 * (-1.388731625493765e-3 + r2 * 2.443315711809948e-5));
+	}
+
+	public static double atan2(double y, double x) {
+		double ax = java.lang.Math.abs(x);
+		double ay = java.lang.Math.abs(y);
+		if (!(ax > 0 && ay > 0 && ax < Double.POSITIVE_INFINITY && ay < Double.POSITIVE_INFINITY)) {
+			return StrictMath.atan2(y, x);
+		}
+		double angle = ay <= ax ? atan01(ay / ax) : PI_HALF - atan01(ax / ay);
+		if (x < 0) {
+			angle = PI - angle;
+		}
+		return y < 0 ? -angle : angle;
+	}
+
+	//atan(t) for 0 <= t <= 1: atan(t) = atan(c) + atan((t - c) / (1 + t * c)) with c the nearest i/32
+	private static double atan01(double t) {
+		int i = (int) (t * 32 + 0.5);
+		double c = i / 32.0;
+		double d = (t - c) / (1 + t * c);
+		//|d| <= 1/64, the d^5 / 5 left out is below 1e-8 of atan(t)
+		return ATAN_TABLE[i] + (d - d * d * d * (1.0 / 3));
+	}
+
+	public static double cbrt(double x) {
+		if (x == 0 || x != x || x == Double.POSITIVE_INFINITY || x == Double.NEGATIVE_INFINITY) {
+			return x;
+		}
+		double ax = java.lang.Math.abs(x);
+		double factor = 1;
+		if (ax < Double.MIN_NORMAL) {
+			ax *= TWO_54;
+			factor = 1.0 / (1 << 18);
+		}
+		//Newton steps for w = 1 / cbrt(ax) need no division, unlike those for cbrt(ax) itself. They take
+		//the error of ax * w * w from 7e-2 to 5e-3, 2e-5 and 5e-10. ax * w first keeps w^3 from underflowing.
+		double w = Double.longBitsToDouble(INV_CBRT_BIAS - Double.doubleToRawLongBits(ax) / 3);
+		w = w * (4 - ax * w * w * w) * (1.0 / 3);
+		w = w * (4 - ax * w * w * w) * (1.0 / 3);
+		w = w * (4 - ax * w * w * w) * (1.0 / 3);
+		return java.lang.Math.copySign(ax * w * w * factor, x);
+	}
+
+	public static double hypot(double x, double y) {
+		double ax = java.lang.Math.abs(x);
+		double ay = java.lang.Math.abs(y);
+		if (ax == Double.POSITIVE_INFINITY || ay == Double.POSITIVE_INFINITY) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if (ax != ax || ay != ay) {
+			return Double.NaN;
+		}
+		if (ax < ay) {
+			double swap = ax;
+			ax = ay;
+			ay = swap;
+		}
+		if (ax < HYPOT_MAX && ax > HYPOT_MIN) {
+			//ay^2 may underflow, but then it is far below half an ulp of ax^2
+			return java.lang.Math.sqrt(ax * ax + ay * ay);
+		}
+		if (ax == 0) {
+			return 0;
+		}
+		double r = ay / ax;
+		return ax * java.lang.Math.sqrt(1 + r * r);
+	}
+}
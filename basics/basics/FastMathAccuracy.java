@@ -0,0 +1,136 @@
+package basics;
+
+import java.util.SplittableRandom;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/*
+ * Accuracy check of FastMath against java.lang.Math.
+ *
+ * Every function is compared on the values basics.Math prints in its example, on special
+ * values and on a million random arguments (fixed seed) per range. pow is also sampled with
+ * bases close to 1 and exponents up to 700000, where |y * log(x)| reaches the 745 at which
+ * results underflow: an error in log(x) grows with it. The largest relative error
+ * found is printed next to the bound documented in FastMath, and the program exits with
+ * status 1 if any bound is exceeded.
+ */
+public class FastMathAccuracy {
+
+	private static final int SAMPLES = 1_000_000;
+	private static final double[] SPECIAL = {0.0, -0.0, 1.0, -1.0, Double.NaN, Double.POSITIVE_INFINITY,
+			Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MIN_NORMAL, Double.MAX_VALUE, -Double.MAX_VALUE};
+
+	private static boolean failed;
+
+	public static void main(String[] args) {
+		double angle = 45.0 * 2.0 * java.lang.Math.PI / 360.0;
+
+		check("exp", FastMath::exp, java.lang.Math::exp, FastMath.EXP_LOG_ERROR,
+				new double[] {1.0, 10.0, 0.0}, -745, 709.7);
+		check("log", FastMath::log, java.lang.Math::log, FastMath.EXP_LOG_ERROR,
+				new double[] {1.0, 10.0, java.lang.Math.E}, 1e-300, 1e300, 0.9, 1.1);
+		check("log10", FastMath::log10, java.lang.Math::log10, FastMath.EXP_LOG_ERROR,
+				new double[] {1.0, 10.0, 1000.0}, 1e-300, 1e300, 0.9, 1.1);
+		check("sin", FastMath::sin, java.lang.Math::sin, FastMath.TRIG_ERROR,
+				new double[] {angle}, -10, 10, -1e5, 1e5);
+		check("cos", FastMath::cos, java.lang.Math::cos, FastMath.TRIG_ERROR,
+				new double[] {angle}, -10, 10, -1e5, 1e5);
+		check("tan", FastMath::tan, java.lang.Math::tan, FastMath.TRIG_ERROR,
+				new double[] {angle}, -10, 10, -1e5, 1e5);
+		check("cbrt", FastMath::cbrt, java.lang.Math::cbrt, FastMath.CBRT_ERROR,
+				new double[] {27.0, -8.0, 2.0}, -1e300, 1e300, -10, 10);
+		check2("pow", FastMath::pow, java.lang.Math::pow, FastMath.POW_ERROR,
+				new double[][] {{2.0, 2.0}, {10.0, 3.5}, {8, -1}, {-2, 3}, {-2, 0.5}, {1.0222385588539844, -24914.025679810882}},
+				0, 100, -100, 100, 0.9, 1.1, -7000, 7000, 0.999, 1.001, -700000, 700000, 1e-300, 1e300, -2.3, 2.3);
+		check2("atan2", FastMath::atan2, java.lang.Math::atan2, FastMath.ATAN2_ERROR,
+				new double[][] {{1, 1}, {-1, -1}, {0.707, 1}}, -1000, 1000, -1000, 1000);
+		check2("hypot", FastMath::hypot, java.lang.Math::hypot, FastMath.HYPOT_ERROR,
+				new double[][] {{3, 4}, {1e300, 1e300}, {1e-300, 1e-300}}, -1e6, 1e6, -1e6, 1e6);
+
+		if (failed) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+		System.out.println("OK");
+	}
+
+	//"ranges" holds pairs of bounds, every pair gets SAMPLES uniform random arguments.
+	private static void check(String name, DoubleUnaryOperator fast, DoubleUnaryOperator exact, double bound,
+			double[] examples, double... ranges) {
+		double worst = 0;
+		double worstAt = 0;
+		for (double[] values : new double[][] {examples, SPECIAL}) {
+			for (double x : values) {
+				double error = error(fast.applyAsDouble(x), exact.applyAsDouble(x));
+				if (error > worst) {
+					worst = error;
+					worstAt = x;
+				}
+			}
+		}
+		SplittableRandom random = new SplittableRandom(42);
+		for (int r = 0; r < ranges.length; r += 2) {
+			for (int i = 0; i < SAMPLES; i++) {
+				double x = random.nextDouble(ranges[r], ranges[r + 1]);
+				double error = error(fast.applyAsDouble(x), exact.applyAsDouble(x));
+				if (error > worst) {
+					worst = error;
+					worstAt = x;
+				}
+			}
+		}
+		report(name, worst, bound, "x = " + worstAt);
+	}
+
+	//"ranges" holds x from, x to, y from, y to, every four get SAMPLES uniform random pairs.
+	private static void check2(String name, DoubleBinaryOperator fast, DoubleBinaryOperator exact, double bound,
+			double[][] examples, double... ranges) {
+		double worst = 0;
+		String worstAt = "";
+		for (double[] pair : examples) {
+			double error = error(fast.applyAsDouble(pair[0], pair[1]), exact.applyAsDouble(pair[0], pair[1]));
+			if (error > worst) {
+				worst = error;
+				worstAt = pair[0] + ", " + pair[1];
+			}
+		}
+		for (double x : SPECIAL) {
+			for (double y : SPECIAL) {
+				double error = error(fast.applyAsDouble(x, y), exact.applyAsDouble(x, y));
+				if (error > worst) {
+					worst = error;
+					worstAt = x + ", " + y;
+				}
+			}
+		}
+		SplittableRandom random = new SplittableRandom(42);
+		for (int r = 0; r < ranges.length; r += 4) {
+			for (int i = 0; i < SAMPLES; i++) {
+				double x = random.nextDouble(ranges[r], ranges[r + 1]);
+				double y = random.nextDouble(ranges[r + 2], ranges[r + 3]);
+				double error = error(fast.applyAsDouble(x, y), exact.applyAsDouble(x, y));
+				if (error > worst) {
+					worst = error;
+					worstAt = x + ", " + y;
+				}
+			}
+		}
+		report(name, worst, bound, "at " + worstAt);
+	}
+
+	//Relative error, relative to MIN_NORMAL for subnormal results. Special values must match exactly,
+	//zeros with their sign, NaN counts as equal to NaN.
+	private static double error(double fast, double exact) {
+		if (Double.isNaN(exact) || Double.isInfinite(exact) || exact == 0) {
+			return Double.compare(fast, exact) == 0 ? 0 : Double.POSITIVE_INFINITY;
+		}
+		return java.lang.Math.abs(fast - exact) / java.lang.Math.max(java.lang.Math.abs(exact), Double.MIN_NORMAL);
+	}
+
+	private static void report(String name, double worst, double bound, String where) {
+		boolean ok = worst <= bound;
+		failed |= !ok;
+		System.out.printf("%-6s max relative error %.3e (bound %.0e) %s %s%n", name, worst, bound, where,
+				ok ? "" : "FAILED");
+	}
+}
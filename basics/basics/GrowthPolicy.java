@@ -0,0 +1,40 @@
+package basics;
+
+/*
+ * How a builder picks its next capacity when it runs out of room.
+ *
+ * DOUBLING is the rule of java.lang.StringBuffer and StringBuilder, (oldcapacity*2)+2.
+ * fixedStep() grows by a constant amount, which wastes less memory for texts that grow slowly
+ * but copies more often. SIZE_CLASS rounds up to the next power of two, so the arrays come in
+ * a few sizes only and can be reused by a CharArrayPool.
+ */
+public interface GrowthPolicy {
+
+	int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+	GrowthPolicy DOUBLING = (capacity, minCapacity) -> check(minCapacity, capacity * 2L + 2);
+
+	GrowthPolicy SIZE_CLASS = (capacity, minCapacity) -> check(minCapacity, sizeClass(minCapacity));
+
+	//Returns a capacity of at least minCapacity, which is larger than capacity.
+	int newCapacity(int capacity, int minCapacity);
+
+	static GrowthPolicy fixedStep(int step) {
+		if (step < 1) {
+			throw new IllegalArgumentException("step must be at least 1, was " + step);
+		}
+		return (capacity, minCapacity) -> check(minCapacity, (long) capacity + step);
+	}
+
+	//The smallest power of two that is at least 16 and at least minCapacity.
+	static long sizeClass(int minCapacity) {
+		return minCapacity <= 16 ? 16 : Long.highestOneBit(minCapacity - 1L) << 1;
+	}
+
+	static int check(int minCapacity, long proposed) {
+		if (minCapacity < 0 || minCapacity > MAX_CAPACITY) {
+			throw new OutOfMemoryError("Required capacity " + (minCapacity & 0xFFFFFFFFL) + " is too large");
+		}
+		return (int) java.lang.Math.min(MAX_CAPACITY, java.lang.Math.max(proposed, minCapacity));
+	}
+}
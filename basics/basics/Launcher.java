@@ -0,0 +1,181 @@
+package basics;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * One entry point for the mains of this package, which loads only the class it runs.
+ *
+ *   java -cp basics.jar basics.Launcher [--timing] [--archive FILE] [--list] TASK [ARGS...]
+ *
+ * The task names map to class names as strings, so the launcher itself refers to none of the
+ * task classes: a run loads and initializes only its task class and what that uses, and a
+ * task that fails to initialize doesn't affect the others. --list shows the tasks. StreamApi,
+ * StringBuilder and StringBuffer are notes with statements outside of methods, which the build
+ * doesn't compile, so they are no tasks. A task whose class is missing from the class path is
+ * reported like an unknown task.
+ *
+ * --timing prints to stderr how long the JVM took to start until the launcher ran, how long
+ * loading the task class and running its main took, and how many classes the JVM had loaded
+ * before and during the task, from the ClassLoadingMXBean.
+ *
+ * For short runs JVM startup is most of the time, and most of that is loading and verifying
+ * JDK and application classes. --archive FILE runs the task once in a child JVM with
+ * -XX:ArchiveClassesAtExit=FILE, which writes the classes it loaded to a class data sharing
+ * (AppCDS) archive. Later runs map that archive instead of loading the classes again:
+ *
+ *   java -XX:SharedArchiveFile=FILE -cp basics.jar basics.Launcher TASK
+ *
+ * CDS only archives classes from JAR files, so the class path must not contain directories
+ * with classes in them. -XX:ArchiveClassesAtExit needs JDK 13 or later. On older JDKs the
+ * archive is made in two steps with -XX:DumpLoadedClassList and -Xshare:dump, which --archive
+ * prints instead.
+ */
+public final class Launcher {
+
+	private static final Map<String, String> TASKS = new LinkedHashMap<>();
+
+	static {
+		TASKS.put("math", "basics.Math");
+		TASKS.put("fast-math-accuracy", "basics.FastMathAccuracy");
+		TASKS.put("global-variables", "basics.CreatingGlobalVariables");
+		TASKS.put("static-global-variables", "basics.StaticGlobalVariables");
+		TASKS.put("exceptions", "basics.Exceptions");
+	}
+
+	private Launcher() {
+	}
+
+	public static void main(String[] args) throws Throwable {
+		boolean timing = false;
+		String archive = null;
+		int i = 0;
+		for (; i < args.length && args[i].startsWith("--"); i++) {
+			switch (args[i]) {
+			case "--timing":
+				timing = true;
+				break;
+			case "--archive":
+				if (++i == args.length) {
+					usage("--archive needs a file");
+				}
+				archive = args[i];
+				break;
+			case "--list":
+				TASKS.forEach((name, className) -> System.out.println(name + "\t" + className));
+				return;
+			default:
+				usage("unknown option " + args[i]);
+			}
+		}
+		if (i == args.length) {
+			usage("no task");
+		}
+		String task = args[i];
+		String[] taskArgs = Arrays.copyOfRange(args, i + 1, args.length);
+		if (!TASKS.containsKey(task)) {
+			usage("unknown task " + task);
+		}
+		if (archive != null) {
+			System.exit(archive(archive, task, taskArgs, timing));
+		}
+		run(task, taskArgs, timing);
+	}
+
+	private static void usage(String problem) {
+		System.err.println(problem);
+		System.err.println("usage: Launcher [--timing] [--archive FILE] [--list] TASK [ARGS...]");
+		System.err.println("tasks: " + String.join(", ", TASKS.keySet()));
+		System.exit(2);
+	}
+
+	//Loads the task class, then initializes it and runs its main.
+	static void run(String task, String[] args, boolean timing) throws Throwable {
+		//java.lang.management loads a few hundred classes of its own, so only for --timing
+		long startupMillis = 0;
+		ClassLoadingMXBean classLoading = null;
+		long classesBefore = 0;
+		if (timing) {
+			startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+			classLoading = ManagementFactory.getClassLoadingMXBean();
+			classesBefore = classLoading.getTotalLoadedClassCount();
+		}
+		long start = System.nanoTime();
+		Class<?> taskClass;
+		try {
+			taskClass = Class.forName(TASKS.get(task), false, Launcher.class.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			usage("task " + task + ": " + TASKS.get(task) + " is not on the class path");
+			return;
+		}
+		Method main = taskClass.getMethod("main", String[].class);
+		if (!Modifier.isStatic(main.getModifiers())) {
+			throw new IllegalStateException(taskClass.getName() + ".main is not static");
+		}
+		long loaded = System.nanoTime();
+		try {
+			main.invoke(null, (Object) args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		} finally {
+			long end = System.nanoTime();
+			if (timing) {
+				long classesAfter = classLoading.getTotalLoadedClassCount();
+				System.err.printf("%s: startup %d ms, load %.1f ms, run %.1f ms, classes %d before, %d during the task%n",
+						task, startupMillis, (loaded - start) / 1e6, (end - loaded) / 1e6, classesBefore,
+						classesAfter - classesBefore);
+			}
+		}
+	}
+
+	//Runs the task in a child JVM that writes an AppCDS archive of the classes it loaded, returns its exit code.
+	private static int archive(String archive, String task, String[] args, boolean timing)
+			throws IOException, InterruptedException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		String classPath = System.getProperty("java.class.path");
+		if (featureVersion() < 13) {
+			System.err.println("-XX:ArchiveClassesAtExit needs JDK 13 or later, on this JDK run");
+			System.err.println("  " + java + " -XX:DumpLoadedClassList=classes.lst -cp " + classPath + " "
+					+ Launcher.class.getName() + " " + task);
+			System.err.println("  " + java + " -Xshare:dump -XX:SharedClassListFile=classes.lst -XX:SharedArchiveFile="
+					+ archive + " -cp " + classPath);
+			return 1;
+		}
+		List<String> command = new ArrayList<>();
+		command.add(java);
+		command.add("-XX:ArchiveClassesAtExit=" + archive);
+		command.add("-cp");
+		command.add(classPath);
+		command.add(Launcher.class.getName());
+		if (timing) {
+			command.add("--timing");
+		}
+		command.add(task);
+		command.addAll(Arrays.asList(args));
+		int exitCode = new ProcessBuilder(command).inheritIO().start().waitFor();
+		if (exitCode == 0) {
+			System.err.println("archive written, use it with: " + java + " -XX:SharedArchiveFile=" + archive + " -cp "
+					+ classPath + " " + Launcher.class.getName() + " " + task);
+		}
+		return exitCode;
+	}
+
+	//8 for "1.8", 17 for "17".
+	private static int featureVersion() {
+		String version = System.getProperty("java.specification.version");
+		if (version.startsWith("1.")) {
+			version = version.substring(2);
+		}
+		return Integer.parseInt(version);
+	}
+}
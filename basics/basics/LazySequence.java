@@ -0,0 +1,179 @@
+package basics;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * An infinite sequence of objects computed on demand, that keeps the prefix it has computed.
+ *
+ * Stream.iterate(seed, next) and Stream.generate(supplier) start from scratch for every stream
+ * and a parallel stream over them runs one element after the other. A LazySequence computes
+ * each element once, the first time an index at or past it is asked for, and keeps it, so
+ * later streams and get() calls of any thread read the kept elements:
+ *
+ *   LazySequence<BigInteger> powers = LazySequence.iterate(BigInteger.ONE, n -> n.shiftLeft(1));
+ *   BigInteger big = powers.get(1000);
+ *   long digits = powers.stream(2000).parallel().mapToInt(n -> n.toString().length()).sum();
+ *
+ * A stream computes the missing part of its range once when it is first split, and then
+ * splits over the kept elements like a range. For generate() the elements are the first
+ * results of the supplier, in order, and stay the same for every later stream. At most
+ * Integer.MAX_VALUE - 8 elements can be kept. LongSequence is the primitive version, with
+ * direct computation for arithmetic and affine sequences.
+ */
+public final class LazySequence<T> {
+
+	private static final int MAX_KEPT = Integer.MAX_VALUE - 8;
+
+	private final Supplier<? extends T> first;
+	private final UnaryOperator<T> next;
+	private volatile Prefix prefix = new Prefix(new Object[0], 0);
+
+	private LazySequence(Supplier<? extends T> first, UnaryOperator<T> next) {
+		this.first = first;
+		this.next = next;
+	}
+
+	public static <T> LazySequence<T> iterate(T first, UnaryOperator<T> next) {
+		Objects.requireNonNull(next, "next");
+		return new LazySequence<>(() -> first, next);
+	}
+
+	public static <T> LazySequence<T> generate(Supplier<? extends T> supplier) {
+		Objects.requireNonNull(supplier, "supplier");
+		return new LazySequence<>(supplier, previous -> supplier.get());
+	}
+
+	//The elements computed so far, see LongSequence.Iterated for why the array may be shared.
+	private static final class Prefix {
+
+		final Object[] values;
+		final int count;
+
+		Prefix(Object[] values, int count) {
+			this.values = values;
+			this.count = count;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public T get(long index) {
+		if (index < 0 || index >= MAX_KEPT) {
+			throw new IndexOutOfBoundsException("index " + index);
+		}
+		return (T) ensure((int) index + 1).values[(int) index];
+	}
+
+	//How many elements have been computed.
+	public int computed() {
+		return prefix.count;
+	}
+
+	private Prefix ensure(int size) {
+		Prefix kept = prefix;
+		if (size <= kept.count) {
+			return kept;
+		}
+		synchronized (this) {
+			kept = prefix;
+			if (size <= kept.count) {
+				return kept;
+			}
+			Object[] values = kept.values;
+			if (size > values.length) {
+				values = Arrays.copyOf(values, (int) java.lang.Math.min(java.lang.Math.max(size, 2L * values.length), MAX_KEPT));
+			}
+			int i = kept.count;
+			if (i == 0) {
+				values[i++] = first.get();
+			}
+			@SuppressWarnings("unchecked")
+			T value = (T) values[i - 1];
+			for (; i < size; i++) {
+				value = next.apply(value);
+				values[i] = value;
+			}
+			kept = new Prefix(values, size);
+			prefix = kept;
+			return kept;
+		}
+	}
+
+	public Stream<T> stream(long size) {
+		return stream(0, size);
+	}
+
+	//The elements [from, to).
+	public Stream<T> stream(long from, long to) {
+		if (from < 0 || from > to || to > MAX_KEPT) {
+			throw new IllegalArgumentException("not a range of indexes: " + from + ".." + to);
+		}
+		return StreamSupport.stream(new Elements((int) from, (int) to), false);
+	}
+
+	@Override
+	public String toString() {
+		return "LazySequence[computed " + prefix.count + "]";
+	}
+
+	//The elements [index, end), computed one after the other until the first split computes them all.
+	private final class Elements implements Spliterator<T> {
+
+		private int index;
+		private final int end;
+
+		Elements(int index, int end) {
+			this.index = index;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (index >= end) {
+				return false;
+			}
+			action.accept(get(index++));
+			return true;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void forEachRemaining(Consumer<? super T> action) {
+			if (index >= end) {
+				return;
+			}
+			Object[] values = ensure(end).values;
+			for (; index < end; index++) {
+				action.accept((T) values[index]);
+			}
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			int middle = (index + end) >>> 1;
+			if (middle <= index) {
+				return null;
+			}
+			ensure(end);
+			Elements prefix = new Elements(index, middle);
+			index = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED | Spliterator.IMMUTABLE;
+		}
+	}
+}
@@ -0,0 +1,325 @@
+package basics;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/*
+ * An infinite sequence of longs, x0, x1, x2, ..., evaluated lazily, that streams any range of
+ * its indexes without boxing.
+ *
+ * LongStream.iterate(40, n -> n + 2).limit(20) can only compute one element after the other
+ * from the seed, on one thread, and again for every stream. For the recurrences that have a
+ * closed form a LongSequence computes the element at any index directly, so a stream over a
+ * range splits in even halves like LongStream.range() and each half starts at its own index:
+ *
+ * - arithmetic(first, step): x(i) = first + i * step, in O(1)
+ * - affine(first, multiplier, increment): x(i + 1) = multiplier * x(i) + increment, e.g. a
+ *   linear congruential generator, in O(log i) by composing the step with itself: applying
+ *   x -> a * x + b twice is x -> (a * a) * x + (a * b + b), so x(i) needs the compositions for
+ *   the bits of i only
+ *
+ *   long sum = LongSequence.arithmetic(40, 2).stream(1_000_000_000L).parallel().sum();
+ *
+ * Arithmetic is mod 2^64, as with long operations. Every split computes its first element with
+ * valueAt() and then steps with the recurrence, so a stream costs one step per element.
+ *
+ * iterate(first, next) takes any function. Without a closed form its streams are sequential
+ * and valueAt(i) costs i steps, unless the sequence is memoized(): then the prefix computed so
+ * far is kept in an array, shared by all threads, and valueAt() only computes past its end.
+ * A stream over a memoized sequence computes the missing prefix once when it is first split
+ * and then splits over the array like a range. LazySequence does the same for objects.
+ */
+public abstract class LongSequence {
+
+	LongSequence() {
+	}
+
+	public static LongSequence arithmetic(long first, long step) {
+		return new Affine(first, 1, step);
+	}
+
+	public static LongSequence affine(long first, long multiplier, long increment) {
+		return new Affine(first, multiplier, increment);
+	}
+
+	public static LongSequence iterate(long first, LongUnaryOperator next) {
+		return new Iterated(first, Objects.requireNonNull(next, "next"), false);
+	}
+
+	public abstract long valueAt(long index);
+
+	//The element after "value", x(i + 1) from x(i).
+	abstract long next(long value);
+
+	//Whether valueAt() is cheap for any index below "end", so that a stream up to it can split.
+	abstract boolean splittable(long end);
+
+	//A sequence with the same elements that keeps those it has computed, or this one if they are cheap anyway.
+	public LongSequence memoized() {
+		return this;
+	}
+
+	//Passes the elements [from, to) to the action, one step after the other.
+	void forEach(long from, long to, LongConsumer action) {
+		if (from >= to) {
+			return;
+		}
+		long value = valueAt(from);
+		action.accept(value);
+		for (long i = from + 1; i < to; i++) {
+			value = next(value);
+			action.accept(value);
+		}
+	}
+
+	public LongStream stream(long size) {
+		return stream(0, size);
+	}
+
+	//The elements [from, to).
+	public LongStream stream(long from, long to) {
+		if (from < 0 || from > to) {
+			throw new IllegalArgumentException("not a range of indexes: " + from + ".." + to);
+		}
+		return StreamSupport.longStream(new Elements(from, to), false);
+	}
+
+	public long[] toArray(int size) {
+		long[] array = new long[size];
+		int[] i = new int[1];
+		forEach(0, size, value -> array[i[0]++] = value);
+		return array;
+	}
+
+	private static final class Affine extends LongSequence {
+
+		private final long first;
+		private final long multiplier;
+		private final long increment;
+
+		Affine(long first, long multiplier, long increment) {
+			this.first = first;
+			this.multiplier = multiplier;
+			this.increment = increment;
+		}
+
+		@Override
+		public long valueAt(long index) {
+			if (index < 0) {
+				throw new IndexOutOfBoundsException("index " + index);
+			}
+			if (multiplier == 1) {
+				return first + index * increment;
+			}
+			//x -> a * x + b composed index times, from the compositions for the powers of two
+			long a = 1;
+			long b = 0;
+			long stepA = multiplier;
+			long stepB = increment;
+			for (long i = index; i != 0; i >>>= 1) {
+				if ((i & 1) != 0) {
+					a = stepA * a;
+					b = stepA * b + stepB;
+				}
+				stepB = stepA * stepB + stepB;
+				stepA = stepA * stepA;
+			}
+			return a * first + b;
+		}
+
+		@Override
+		long next(long value) {
+			return multiplier * value + increment;
+		}
+
+		@Override
+		boolean splittable(long end) {
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return multiplier == 1 ? "LongSequence[" + first + " + i * " + increment + "]"
+					: "LongSequence[" + first + ", x -> " + multiplier + " * x + " + increment + "]";
+		}
+	}
+
+	private static final class Iterated extends LongSequence {
+
+		//The most elements an array can keep, later ones are computed from the last kept one.
+		private static final int MAX_KEPT = Integer.MAX_VALUE - 8;
+
+		private final long first;
+		private final LongUnaryOperator next;
+		private final boolean memoized;
+		private volatile Prefix prefix;
+
+		Iterated(long first, LongUnaryOperator next, boolean memoized) {
+			this.first = first;
+			this.next = next;
+			this.memoized = memoized;
+			this.prefix = new Prefix(new long[] { first }, 1);
+		}
+
+		/*
+		 * The elements computed so far. A new Prefix is published for every extension, and may
+		 * share the array of the one before: that one is never read at or past its own count,
+		 * where the extension writes.
+		 */
+		private static final class Prefix {
+
+			final long[] values;
+			final int count;
+
+			Prefix(long[] values, int count) {
+				this.values = values;
+				this.count = count;
+			}
+		}
+
+		@Override
+		public LongSequence memoized() {
+			return memoized ? this : new Iterated(first, next, true);
+		}
+
+		@Override
+		public long valueAt(long index) {
+			if (index < 0) {
+				throw new IndexOutOfBoundsException("index " + index);
+			}
+			Prefix kept = memoized ? ensure(index + 1) : prefix;
+			if (index < kept.count) {
+				return kept.values[(int) index];
+			}
+			long value = kept.values[kept.count - 1];
+			for (long i = kept.count - 1; i < index; i++) {
+				value = next.applyAsLong(value);
+			}
+			return value;
+		}
+
+		//The prefix with at least "size" elements, or as many as an array can keep.
+		private Prefix ensure(long size) {
+			Prefix kept = prefix;
+			if (size <= kept.count) {
+				return kept;
+			}
+			synchronized (this) {
+				kept = prefix;
+				int target = (int) java.lang.Math.min(size, MAX_KEPT);
+				if (target <= kept.count) {
+					return kept;
+				}
+				long[] values = kept.values;
+				if (target > values.length) {
+					int capacity = (int) java.lang.Math.min(java.lang.Math.max(target, 2L * values.length), MAX_KEPT);
+					values = Arrays.copyOf(values, capacity);
+				}
+				long value = values[kept.count - 1];
+				for (int i = kept.count; i < target; i++) {
+					value = next.applyAsLong(value);
+					values[i] = value;
+				}
+				kept = new Prefix(values, target);
+				prefix = kept;
+				return kept;
+			}
+		}
+
+		@Override
+		long next(long value) {
+			return next.applyAsLong(value);
+		}
+
+		@Override
+		boolean splittable(long end) {
+			return memoized && ensure(end).count >= end;
+		}
+
+		@Override
+		void forEach(long from, long to, LongConsumer action) {
+			Prefix kept = prefix;
+			long i = from;
+			for (; i < to && i < kept.count; i++) {
+				action.accept(kept.values[(int) i]);
+			}
+			super.forEach(i, to, action);
+		}
+
+		@Override
+		public String toString() {
+			return "LongSequence[iterate from " + first + (memoized ? ", memoized " + prefix.count + "]" : "]");
+		}
+	}
+
+	//The elements [index, end), split in halves when the sequence can compute any of them directly.
+	private final class Elements implements Spliterator.OfLong {
+
+		private long index;
+		private final long end;
+		private boolean started;
+		private long value;
+
+		Elements(long index, long end) {
+			this.index = index;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(LongConsumer action) {
+			if (index >= end) {
+				return false;
+			}
+			value = started ? next(value) : valueAt(index);
+			started = true;
+			index++;
+			action.accept(value);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(LongConsumer action) {
+			if (index >= end) {
+				return;
+			}
+			if (started) {
+				//continue from the last element instead of computing the next one from its index
+				for (; index < end; index++) {
+					value = next(value);
+					action.accept(value);
+				}
+				return;
+			}
+			long from = index;
+			index = end;
+			forEach(from, end, action);
+		}
+
+		@Override
+		public Spliterator.OfLong trySplit() {
+			long middle = (index + end) >>> 1;
+			if (started || middle <= index || !splittable(end)) {
+				return null;
+			}
+			Elements prefix = new Elements(index, middle);
+			index = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED | Spliterator.IMMUTABLE
+					| Spliterator.NONNULL;
+		}
+	}
+}
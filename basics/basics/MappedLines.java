@@ -0,0 +1,269 @@
+package basics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * Line source for big text files, used instead of Files.lines().
+ *
+ * The file is mapped with FileChannel.map() in regions of at most 1 GB, every region ending
+ * right after a '\n', so no line crosses two regions. The spliterator splits first by region
+ * and then inside a region at the next newline after the midpoint, which gives a parallel
+ * stream chunks of about the same size.
+ *
+ * Lines are handed out as CharSequence views over the mapping (without the "\n" or "\r\n"
+ * terminator). No String is created unless toString() is called on a line. Only charsets in
+ * which '\n' is always the single byte 0x0A are supported: UTF-8, US-ASCII and ISO-8859-1.
+ */
+public final class MappedLines {
+
+	static final int REGION_SIZE = 1 << 30;
+	static final int MIN_SPLIT = 1 << 14;
+
+	private MappedLines() {
+	}
+
+	public static Stream<CharSequence> lines(Path path) throws IOException {
+		return lines(path, StandardCharsets.UTF_8);
+	}
+
+	public static Stream<CharSequence> lines(Path path, Charset charset) throws IOException {
+		boolean singleByte;
+		if (charset.equals(StandardCharsets.UTF_8)) {
+			singleByte = false;
+		} else if (charset.equals(StandardCharsets.US_ASCII)) {
+			//the constant, so that Line can tell it by identity
+			charset = StandardCharsets.US_ASCII;
+			singleByte = true;
+		} else if (charset.equals(StandardCharsets.ISO_8859_1)) {
+			singleByte = true;
+		} else {
+			throw new UnsupportedCharsetException(charset.name());
+		}
+		MappedByteBuffer[] regions = map(path);
+		if (regions.length == 0) {
+			return Stream.empty();
+		}
+		int last = regions.length - 1;
+		return StreamSupport.stream(
+				new LineSpliterator(regions, 0, 0, last, regions[last].limit(), charset, singleByte), false);
+	}
+
+	//The mapping stays valid after the channel is closed, so the channel is not kept open.
+	private static MappedByteBuffer[] map(Path path) throws IOException {
+		List<MappedByteBuffer> regions = new ArrayList<>();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long start = 0;
+			while (start < size) {
+				long length = java.lang.Math.min(REGION_SIZE, size - start);
+				MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+				if (start + length < size) {
+					int end = (int) length;
+					while (end > 0 && region.get(end - 1) != '\n') {
+						end--;
+					}
+					if (end == 0) {
+						throw new IOException("Line longer than " + REGION_SIZE + " bytes at offset " + start + " in " + path);
+					}
+					if (end < length) {
+						length = end;
+						region = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+					}
+				}
+				regions.add(region);
+				start += length;
+			}
+		}
+		return regions.toArray(new MappedByteBuffer[0]);
+	}
+
+	static final class LineSpliterator implements Spliterator<CharSequence> {
+
+		private final MappedByteBuffer[] regions;
+		private final Charset charset;
+		private final boolean singleByte;
+		private int region;
+		private int pos;
+		private final int lastRegion;
+		private int end;
+
+		LineSpliterator(MappedByteBuffer[] regions, int region, int pos, int lastRegion, int end,
+				Charset charset, boolean singleByte) {
+			this.regions = regions;
+			this.region = region;
+			this.pos = pos;
+			this.lastRegion = lastRegion;
+			this.end = end;
+			this.charset = charset;
+			this.singleByte = singleByte;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super CharSequence> action) {
+			while (true) {
+				ByteBuffer buffer = regions[region];
+				int limit = region == lastRegion ? end : buffer.limit();
+				if (pos < limit) {
+					int lineEnd = pos;
+					while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+						lineEnd++;
+					}
+					int next = lineEnd + 1;
+					if (lineEnd > pos && buffer.get(lineEnd - 1) == '\r') {
+						lineEnd--;
+					}
+					action.accept(new Line(buffer, pos, lineEnd - pos, charset, singleByte));
+					pos = next;
+					return true;
+				}
+				if (region == lastRegion) {
+					return false;
+				}
+				region++;
+				pos = 0;
+			}
+		}
+
+		@Override
+		public Spliterator<CharSequence> trySplit() {
+			if (region < lastRegion) {
+				int mid = (region + lastRegion + 1) >>> 1;
+				Spliterator<CharSequence> prefix = new LineSpliterator(regions, region, pos, mid - 1,
+						regions[mid - 1].limit(), charset, singleByte);
+				region = mid;
+				pos = 0;
+				return prefix;
+			}
+			if (end - pos < MIN_SPLIT) {
+				return null;
+			}
+			ByteBuffer buffer = regions[region];
+			int split = pos + (end - pos) / 2;
+			while (split < end && buffer.get(split) != '\n') {
+				split++;
+			}
+			if (split >= end - 1) {
+				return null;
+			}
+			Spliterator<CharSequence> prefix = new LineSpliterator(regions, region, pos, region, split + 1,
+					charset, singleByte);
+			pos = split + 1;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			long bytes = (region == lastRegion ? end : regions[region].limit()) - pos;
+			for (int i = region + 1; i <= lastRegion; i++) {
+				bytes += i == lastRegion ? end : regions[i].limit();
+			}
+			//There is no way to know the line count without scanning, so assume 64 bytes a line.
+			return bytes / 64 + 1;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL | IMMUTABLE;
+		}
+	}
+
+	/*
+	 * A line of the mapped file. For single byte charsets, and for UTF-8 lines that turn out
+	 * to be pure ASCII, charAt() reads the mapping directly. A UTF-8 line with multi-byte
+	 * characters is decoded once, the first time it is asked for its length or a char. A
+	 * US-ASCII byte above 0x7F is U+FFFD in charAt() as in toString(), which decodes it so.
+	 */
+	static final class Line implements CharSequence {
+
+		private final ByteBuffer buffer;
+		private final int offset;
+		private final int length;
+		private final Charset charset;
+		private boolean direct;
+		private String decoded;
+
+		Line(ByteBuffer buffer, int offset, int length, Charset charset, boolean direct) {
+			this.buffer = buffer;
+			this.offset = offset;
+			this.length = length;
+			this.charset = charset;
+			this.direct = direct;
+		}
+
+		private boolean isDirect() {
+			if (!direct && decoded == null) {
+				boolean ascii = true;
+				for (int i = offset, end = offset + length; i < end; i++) {
+					if (buffer.get(i) < 0) {
+						ascii = false;
+						break;
+					}
+				}
+				if (ascii) {
+					direct = true;
+				} else {
+					decoded = decode();
+				}
+			}
+			return direct;
+		}
+
+		@Override
+		public int length() {
+			return isDirect() ? length : decoded.length();
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (isDirect()) {
+				if (index < 0 || index >= length) {
+					throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+				}
+				byte b = buffer.get(offset + index);
+				return b < 0 && charset == StandardCharsets.US_ASCII ? '\uFFFD' : (char) (b & 0xff);
+			}
+			return decoded.charAt(index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if (isDirect()) {
+				if (start < 0 || end > length || start > end) {
+					throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+				}
+				return new Line(buffer, offset + start, end - start, charset, true);
+			}
+			return decoded.subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			if (decoded != null) {
+				return decoded;
+			}
+			return decode();
+		}
+
+		private String decode() {
+			byte[] bytes = new byte[length];
+			ByteBuffer slice = buffer.duplicate();
+			slice.position(offset);
+			slice.get(bytes);
+			return new String(bytes, charset);
+		}
+	}
+}
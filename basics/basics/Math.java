@@ -1,5 +1,8 @@
 package basics;
 
+import java.nio.DoubleBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
 public class Math {
 
 	public static void main(String[] args) {
@@ -180,4 +183,312 @@ public class Math {
 	                           + Math.random());
 	}
 
+	/*
+	 * This class shadows java.lang.Math inside the basics package, so it forwards the scalar
+	 * methods used above to java.lang.Math and adds bulk versions working on whole arrays.
+	 *
+	 * The bulk methods write into a caller supplied "dst" (which may be the same array as
+	 * "src") and allocate nothing. They are plain counted loops without calls the JIT can't
+	 * inline, which C2 unrolls and, for abs, sqrt, min and max, turns into SIMD instructions.
+	 * The Vector API and MemorySegment need a newer JDK than the one this project targets, so
+	 * off-heap data is taken as a (direct) DoubleBuffer instead.
+	 *
+	 * FastMath has faster approximations of the transcendental functions, with documented
+	 * error bounds, for code that doesn't need the full accuracy of these.
+	 */
+
+	public static final double PI = java.lang.Math.PI;
+	public static final double E = java.lang.Math.E;
+
+	public static int abs(int a) {
+		return java.lang.Math.abs(a);
+	}
+
+	public static long abs(long a) {
+		return java.lang.Math.abs(a);
+	}
+
+	public static float abs(float a) {
+		return java.lang.Math.abs(a);
+	}
+
+	public static double abs(double a) {
+		return java.lang.Math.abs(a);
+	}
+
+	public static long round(double a) {
+		return java.lang.Math.round(a);
+	}
+
+	public static int round(float a) {
+		return java.lang.Math.round(a);
+	}
+
+	public static double ceil(double a) {
+		return java.lang.Math.ceil(a);
+	}
+
+	public static double floor(double a) {
+		return java.lang.Math.floor(a);
+	}
+
+	public static double rint(double a) {
+		return java.lang.Math.rint(a);
+	}
+
+	public static int min(int a, int b) {
+		return java.lang.Math.min(a, b);
+	}
+
+	public static long min(long a, long b) {
+		return java.lang.Math.min(a, b);
+	}
+
+	public static float min(float a, float b) {
+		return java.lang.Math.min(a, b);
+	}
+
+	public static double min(double a, double b) {
+		return java.lang.Math.min(a, b);
+	}
+
+	public static int max(int a, int b) {
+		return java.lang.Math.max(a, b);
+	}
+
+	public static long max(long a, long b) {
+		return java.lang.Math.max(a, b);
+	}
+
+	public static float max(float a, float b) {
+		return java.lang.Math.max(a, b);
+	}
+
+	public static double max(double a, double b) {
+		return java.lang.Math.max(a, b);
+	}
+
+	public static double sin(double a) {
+		return java.lang.Math.sin(a);
+	}
+
+	public static double cos(double a) {
+		return java.lang.Math.cos(a);
+	}
+
+	public static double tan(double a) {
+		return java.lang.Math.tan(a);
+	}
+
+	public static double asin(double a) {
+		return java.lang.Math.asin(a);
+	}
+
+	public static double acos(double a) {
+		return java.lang.Math.acos(a);
+	}
+
+	public static double atan(double a) {
+		return java.lang.Math.atan(a);
+	}
+
+	public static double atan2(double y, double x) {
+		return java.lang.Math.atan2(y, x);
+	}
+
+	public static double toRadians(double angdeg) {
+		return java.lang.Math.toRadians(angdeg);
+	}
+
+	public static double toDegrees(double angrad) {
+		return java.lang.Math.toDegrees(angrad);
+	}
+
+	public static double exp(double a) {
+		return java.lang.Math.exp(a);
+	}
+
+	public static double log(double a) {
+		return java.lang.Math.log(a);
+	}
+
+	public static double log10(double a) {
+		return java.lang.Math.log10(a);
+	}
+
+	public static double pow(double a, double b) {
+		return java.lang.Math.pow(a, b);
+	}
+
+	public static double sqrt(double a) {
+		return java.lang.Math.sqrt(a);
+	}
+
+	public static double cbrt(double a) {
+		return java.lang.Math.cbrt(a);
+	}
+
+	public static double hypot(double x, double y) {
+		return java.lang.Math.hypot(x, y);
+	}
+
+	//java.lang.Math.random() shares one Random, so threads calling it contend on its seed.
+	//The generator of the calling thread gives the same kind of number without that.
+	public static double random() {
+		return ThreadLocalRandom.current().nextDouble();
+	}
+
+	//Bulk operations over arrays
+
+	public static void abs(double[] src, double[] dst) {
+		int n = checkLength(src.length, dst.length);
+		for (int i = 0; i < n; i++) {
+			dst[i] = java.lang.Math.abs(src[i]);
+		}
+	}
+
+	public static void abs(float[] src, float[] dst) {
+		int n = checkLength(src.length, dst.length);
+		for (int i = 0; i < n; i++) {
+			dst[i] = java.lang.Math.abs(src[i]);
+		}
+	}
+
+	public static void sqrt(double[] src, double[] dst) {
+		int n = checkLength(src.length, dst.length);
+		for (int i = 0; i < n; i++) {
+			dst[i] = java.lang.Math.sqrt(src[i]);
+		}
+	}
+
+	//The float -> double -> float round trip is exact for sqrt and is compiled to a float square root.
+	public static void sqrt(float[] src, float[] dst) {
+		int n = checkLength(src.length, dst.length);
+		for (int i = 0; i < n; i++) {
+			dst[i] = (float) java.lang.Math.sqrt(src[i]);
+		}
+	}
+
+	public static void exp(double[] src, double[] dst) {
+		int n = checkLength(src.length, dst.length);
+		for (int i = 0; i < n; i++) {
+			dst[i] = java.lang.Math.exp(src[i]);
+		}
+	}
+
+	public static void exp(float[] src, float[] dst) {
+		int n = checkLength(src.length, dst.length);
+		for (int i = 0; i < n; i++) {
+			dst[i] = (float) java.lang.Math.exp(src[i]);
+		}
+	}
+
+	public static void log(double[] src, double[] dst) {
+		int n = checkLength(src.length, dst.length);
+		for (int i = 0; i < n; i++) {
+			dst[i] = java.lang.Math.log(src[i]);
+		}
+	}
+
+	public static void log(float[] src, float[] dst) {
+		int n = checkLength(src.length, dst.length);
+		for (int i = 0; i < n; i++) {
+			dst[i] = (float) java.lang.Math.log(src[i]);
+		}
+	}
+
+	public static void pow(double[] src, double exponent, double[] dst) {
+		int n = checkLength(src.length, dst.length);
+		for (int i = 0; i < n; i++) {
+			dst[i] = java.lang.Math.pow(src[i], exponent);
+		}
+	}
+
+	//Smallest element, NaN if any element is NaN and +Infinity for an empty array, like a chain of min() calls.
+	public static double min(double[] src) {
+		double min = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < src.length; i++) {
+			min = java.lang.Math.min(min, src[i]);
+		}
+		return min;
+	}
+
+	public static double max(double[] src) {
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < src.length; i++) {
+			max = java.lang.Math.max(max, src[i]);
+		}
+		return max;
+	}
+
+	//Writes the smallest element to result[0] and the largest to result[1] in a single pass.
+	public static void minMax(double[] src, double[] result) {
+		checkLength(2, result.length);
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < src.length; i++) {
+			double value = src[i];
+			min = java.lang.Math.min(min, value);
+			max = java.lang.Math.max(max, value);
+		}
+		result[0] = min;
+		result[1] = max;
+	}
+
+	public static void minMax(float[] src, float[] result) {
+		checkLength(2, result.length);
+		float min = Float.POSITIVE_INFINITY;
+		float max = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < src.length; i++) {
+			float value = src[i];
+			min = java.lang.Math.min(min, value);
+			max = java.lang.Math.max(max, value);
+		}
+		result[0] = min;
+		result[1] = max;
+	}
+
+	//Bulk operations over buffers. They use src.remaining() elements from the positions of both buffers and leave the positions unchanged.
+
+	public static void sqrt(DoubleBuffer src, DoubleBuffer dst) {
+		int n = checkLength(src.remaining(), dst.remaining());
+		for (int i = 0, s = src.position(), d = dst.position(); i < n; i++) {
+			dst.put(d + i, java.lang.Math.sqrt(src.get(s + i)));
+		}
+	}
+
+	public static void exp(DoubleBuffer src, DoubleBuffer dst) {
+		int n = checkLength(src.remaining(), dst.remaining());
+		for (int i = 0, s = src.position(), d = dst.position(); i < n; i++) {
+			dst.put(d + i, java.lang.Math.exp(src.get(s + i)));
+		}
+	}
+
+	public static void log(DoubleBuffer src, DoubleBuffer dst) {
+		int n = checkLength(src.remaining(), dst.remaining());
+		for (int i = 0, s = src.position(), d = dst.position(); i < n; i++) {
+			dst.put(d + i, java.lang.Math.log(src.get(s + i)));
+		}
+	}
+
+	public static void minMax(DoubleBuffer src, double[] result) {
+		checkLength(2, result.length);
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = src.position(), end = src.limit(); i < end; i++) {
+			double value = src.get(i);
+			min = java.lang.Math.min(min, value);
+			max = java.lang.Math.max(max, value);
+		}
+		result[0] = min;
+		result[1] = max;
+	}
+
+	private static int checkLength(int needed, int available) {
+		if (available < needed) {
+			throw new IllegalArgumentException("destination has room for " + available + " elements, " + needed + " needed");
+		}
+		return needed;
+	}
+
 }
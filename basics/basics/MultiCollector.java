@@ -0,0 +1,185 @@
+package basics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/*
+ * Runs any number of collectors over one pass of a stream.
+ *
+ * The collect() section of StreamApi computes toList, joining, averagingInt, summingInt,
+ * summarizingInt, groupingBy and partitioningBy with a stream each, so the data is read seven
+ * times. A MultiCollector feeds every element to all of its collectors at once, and its
+ * results are read back with typed keys:
+ *
+ *   MultiCollector.Key<Double> average = MultiCollector.key("average");
+ *   MultiCollector.Key<Map<Integer, List<Product>>> byPrice = MultiCollector.key("byPrice");
+ *   MultiCollector<Product> collector = MultiCollector.<Product>of()
+ *       .with(average, Collectors.averagingInt(Product::getPrice))
+ *       .with(byPrice, Collectors.groupingBy(Product::getPrice));
+ *   MultiCollector.Results results = productList.parallelStream().collect(collector);
+ *   double averagePrice = results.get(average);
+ *
+ * It is a Collector itself, so a parallel stream gives every thread its own set of containers
+ * and combines them pairwise. It is UNORDERED or CONCURRENT only if all its collectors are.
+ * A MultiCollector is immutable, with() returns a new one.
+ */
+public final class MultiCollector<T> implements Collector<T, Object[], MultiCollector.Results> {
+
+	//Names one result. Keys are compared by identity, the name is only for toString().
+	public static final class Key<R> {
+
+		private final String name;
+
+		Key(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	//The results of all collectors of one collect().
+	public static final class Results {
+
+		private final Key<?>[] keys;
+		private final Object[] values;
+
+		Results(Key<?>[] keys, Object[] values) {
+			this.keys = keys;
+			this.values = values;
+		}
+
+		@SuppressWarnings("unchecked")
+		public <R> R get(Key<R> key) {
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] == key) {
+					return (R) values[i];
+				}
+			}
+			throw new IllegalArgumentException("no collector for key " + key);
+		}
+
+		@Override
+		public String toString() {
+			java.lang.StringBuilder text = new java.lang.StringBuilder("Results{");
+			for (int i = 0; i < keys.length; i++) {
+				text.append(i == 0 ? "" : ", ").append(keys[i]).append('=').append(values[i]);
+			}
+			return text.append('}').toString();
+		}
+	}
+
+	private final Key<?>[] keys;
+	//All take a "? super T", the array type can't say so.
+	private final Collector<?, ?, ?>[] collectors;
+
+	private MultiCollector(Key<?>[] keys, Collector<?, ?, ?>[] collectors) {
+		this.keys = keys;
+		this.collectors = collectors;
+	}
+
+	public static <R> Key<R> key(String name) {
+		return new Key<>(Objects.requireNonNull(name, "name"));
+	}
+
+	public static <T> MultiCollector<T> of() {
+		return new MultiCollector<>(new Key<?>[0], new Collector<?, ?, ?>[0]);
+	}
+
+	public <R> MultiCollector<T> with(Key<R> key, Collector<? super T, ?, R> collector) {
+		Objects.requireNonNull(key, "key");
+		Objects.requireNonNull(collector, "collector");
+		for (Key<?> existing : keys) {
+			if (existing == key) {
+				throw new IllegalArgumentException("key " + key + " is used twice");
+			}
+		}
+		Key<?>[] moreKeys = Arrays.copyOf(keys, keys.length + 1);
+		Collector<?, ?, ?>[] moreCollectors = Arrays.copyOf(collectors, collectors.length + 1);
+		moreKeys[keys.length] = key;
+		moreCollectors[collectors.length] = collector;
+		return new MultiCollector<>(moreKeys, moreCollectors);
+	}
+
+	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Supplier<Object[]> supplier() {
+		Supplier[] suppliers = new Supplier[collectors.length];
+		for (int i = 0; i < collectors.length; i++) {
+			suppliers[i] = collectors[i].supplier();
+		}
+		return () -> {
+			Object[] containers = new Object[suppliers.length];
+			for (int i = 0; i < suppliers.length; i++) {
+				containers[i] = suppliers[i].get();
+			}
+			return containers;
+		};
+	}
+
+	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public BiConsumer<Object[], T> accumulator() {
+		BiConsumer[] accumulators = new BiConsumer[collectors.length];
+		for (int i = 0; i < collectors.length; i++) {
+			accumulators[i] = collectors[i].accumulator();
+		}
+		return (containers, element) -> {
+			for (int i = 0; i < accumulators.length; i++) {
+				accumulators[i].accept(containers[i], element);
+			}
+		};
+	}
+
+	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public BinaryOperator<Object[]> combiner() {
+		BinaryOperator[] combiners = new BinaryOperator[collectors.length];
+		for (int i = 0; i < collectors.length; i++) {
+			combiners[i] = collectors[i].combiner();
+		}
+		return (left, right) -> {
+			for (int i = 0; i < combiners.length; i++) {
+				left[i] = combiners[i].apply(left[i], right[i]);
+			}
+			return left;
+		};
+	}
+
+	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Function<Object[], Results> finisher() {
+		Function[] finishers = new Function[collectors.length];
+		for (int i = 0; i < collectors.length; i++) {
+			finishers[i] = collectors[i].characteristics().contains(Characteristics.IDENTITY_FINISH)
+					? null : collectors[i].finisher();
+		}
+		Key<?>[] resultKeys = keys;
+		return containers -> {
+			Object[] values = new Object[finishers.length];
+			for (int i = 0; i < finishers.length; i++) {
+				values[i] = finishers[i] == null ? containers[i] : finishers[i].apply(containers[i]);
+			}
+			return new Results(resultKeys, values);
+		};
+	}
+
+	@Override
+	public Set<Characteristics> characteristics() {
+		Set<Characteristics> common = EnumSet.of(Characteristics.UNORDERED, Characteristics.CONCURRENT);
+		for (Collector<?, ?, ?> collector : collectors) {
+			common.retainAll(collector.characteristics());
+		}
+		return Collections.unmodifiableSet(common);
+	}
+}
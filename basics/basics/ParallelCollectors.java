@@ -0,0 +1,79 @@
+package basics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collector;
+
+/*
+ * Collectors whose combiner does not copy the elements, as a replacement for the
+ * Collector.of(LinkedList::new, LinkedList::add, addAll) example of StreamApi.
+ *
+ * toChunkedList()  - like toList(), partial results are linked in O(1)
+ * toArray()        - one exactly sized array, the elements are copied once, by the finisher
+ * groupingBy()     - like Collectors.groupingBy(), merging two partial maps costs O(keys)
+ * groupingByConcurrent()
+ *                  - one shared map for all threads, no combiner at all. The stream must
+ *                    not care about encounter order, the groups are in no particular order
+ */
+public final class ParallelCollectors {
+
+	private ParallelCollectors() {
+	}
+
+	public static <T> Collector<T, ?, ChunkedList<T>> toChunkedList() {
+		return Collector.of(ChunkedList::new, ChunkedList::add, ChunkedList::append,
+				Collector.Characteristics.IDENTITY_FINISH);
+	}
+
+	public static <T> Collector<T, ?, T[]> toArray(IntFunction<T[]> generator) {
+		return toArray(generator, 0);
+	}
+
+	/*
+	 * "expectedSize" sizes the first chunk of every partial list, up to MAX_CHUNK elements, so
+	 * the lists skip the small chunks. It is not an exact presize: bigger inputs still take
+	 * several chunks, because a parallel collect calls the supplier once per split, and each
+	 * split would allocate the whole size. The array the finisher returns is always sized
+	 * from the number of elements collected.
+	 */
+	public static <T> Collector<T, ?, T[]> toArray(IntFunction<T[]> generator, int expectedSize) {
+		return Collector.<T, ChunkedList<T>, T[]>of(() -> new ChunkedList<>(expectedSize), ChunkedList::add,
+				ChunkedList::append, list -> list.toArray(generator.apply(list.size())));
+	}
+
+	public static <T, K> Collector<T, ?, Map<K, ChunkedList<T>>> groupingBy(Function<? super T, ? extends K> classifier) {
+		return Collector.<T, Map<K, ChunkedList<T>>>of(HashMap::new,
+				(map, item) -> map.computeIfAbsent(classifier.apply(item), key -> new ChunkedList<>()).add(item),
+				(left, right) -> {
+					for (Map.Entry<K, ChunkedList<T>> entry : right.entrySet()) {
+						ChunkedList<T> group = left.get(entry.getKey());
+						if (group == null) {
+							left.put(entry.getKey(), entry.getValue());
+						} else {
+							group.append(entry.getValue());
+						}
+					}
+					return left;
+				}, Collector.Characteristics.IDENTITY_FINISH);
+	}
+
+	public static <T, K> Collector<T, ?, ConcurrentMap<K, Queue<T>>> groupingByConcurrent(
+			Function<? super T, ? extends K> classifier) {
+		return Collector.<T, ConcurrentMap<K, Queue<T>>>of(ConcurrentHashMap::new,
+				(map, item) -> map.computeIfAbsent(classifier.apply(item), key -> new ConcurrentLinkedQueue<>()).add(item),
+				(left, right) -> {
+					right.forEach((key, group) -> left.merge(key, group, (a, b) -> {
+						a.addAll(b);
+						return a;
+					}));
+					return left;
+				}, Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED,
+				Collector.Characteristics.IDENTITY_FINISH);
+	}
+}
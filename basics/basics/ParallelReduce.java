@@ -0,0 +1,405 @@
+package basics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+
+/*
+ * A parallel reduce that checks its identity and operator before it runs, and that reduces
+ * int, long and double arrays without boxing.
+ *
+ * StreamApi shows Arrays.asList(1, 2, 3).parallelStream().reduce(10, ...) returning 36: every
+ * split starts from the identity, so 10 is added once per split, and the answer depends on
+ * how the stream was split. The same happens silently with an operator that is not
+ * associative. reduce() here tests both on a sample of the input first and throws an
+ * IllegalArgumentException instead:
+ *
+ * - identity: op(identity, x) and op(x, identity) must both be x, for doubles as compared
+ *   with ==, so 0.0 + -0.0 is fine, and NaN counts as equal to NaN
+ * - associativity: op(op(a, b), c) must be op(a, op(b, c)), for doubles up to an error of
+ *   1e-9 relative to the larger of the results and |a| + |b| + |c|, because a floating point
+ *   sum is only associative up to rounding, and that rounding is relative to the operands:
+ *   (1e20 + -1e20) + 1 is 1, 1e20 + (-1e20 + 1) is 0
+ *
+ *   int sum = ParallelReduce.common().reduce(new int[] { 1, 2, 3 }, 0, Integer::sum);    //6
+ *   ParallelReduce.common().reduce(Arrays.asList(1, 2, 3), 10, Integer::sum);            //throws
+ *
+ * The input is cut into a few ranges per thread of the pool, each reduced by a plain loop into
+ * an accumulator of its own, and the partial results are combined in a balanced tree, left with
+ * right, so an operator only needs to be associative, not commutative. The result is the same
+ * for any pool size up to that rounding. A sample can't prove anything, withSamples(0) turns
+ * the checks off for operators known to be fine.
+ */
+public final class ParallelReduce {
+
+	private static final int DEFAULT_SAMPLES = 16;
+	private static final int LEAVES_PER_THREAD = 4;
+	private static final int MIN_LEAF = 1 << 10;
+	private static final double TOLERANCE = 1e-9;
+
+	private final ForkJoinPool pool;
+	private final int samples;
+
+	private ParallelReduce(ForkJoinPool pool, int samples) {
+		if (samples < 0) {
+			throw new IllegalArgumentException("samples must not be negative, was " + samples);
+		}
+		this.pool = pool;
+		this.samples = samples;
+	}
+
+	public static ParallelReduce common() {
+		return new ParallelReduce(ForkJoinPool.commonPool(), DEFAULT_SAMPLES);
+	}
+
+	public static ParallelReduce in(ForkJoinPool pool) {
+		return new ParallelReduce(Objects.requireNonNull(pool, "pool"), DEFAULT_SAMPLES);
+	}
+
+	//The same reduce with checks on "samples" elements, 0 for none.
+	public ParallelReduce withSamples(int samples) {
+		return new ParallelReduce(pool, samples);
+	}
+
+	//How many leaves, each with its own accumulator, for n elements.
+	private int leaves(int n) {
+		return (int) java.lang.Math.max(1, java.lang.Math.min((long) pool.getParallelism() * LEAVES_PER_THREAD, n / MIN_LEAF));
+	}
+
+	//The index of sample i of n elements, spread evenly over the input.
+	private int sampleIndex(int i, int n) {
+		return (int) ((long) i * n / java.lang.Math.min(samples, n));
+	}
+
+	private int sampleCount(int n) {
+		return java.lang.Math.min(samples, n);
+	}
+
+	private static IllegalArgumentException notIdentity(Object identity, Object x, Object result) {
+		return new IllegalArgumentException("identity " + identity + " is not neutral: combined with " + x + " it gives "
+				+ result + ", so the result would depend on the number of splits");
+	}
+
+	private static IllegalArgumentException notAssociative(Object a, Object b, Object c, Object left, Object right) {
+		return new IllegalArgumentException("operator is not associative: (" + a + " op " + b + ") op " + c + " = " + left
+				+ " but " + a + " op (" + b + " op " + c + ") = " + right);
+	}
+
+	public int reduce(int[] values, int identity, IntBinaryOperator op) {
+		int count = sampleCount(values.length);
+		for (int i = 0; i < count; i++) {
+			int x = values[sampleIndex(i, values.length)];
+			int left = op.applyAsInt(identity, x);
+			int right = op.applyAsInt(x, identity);
+			if (left != x || right != x) {
+				throw notIdentity(identity, x, left != x ? left : right);
+			}
+			if (i >= 2) {
+				int a = values[sampleIndex(i - 2, values.length)];
+				int b = values[sampleIndex(i - 1, values.length)];
+				int first = op.applyAsInt(op.applyAsInt(a, b), x);
+				int second = op.applyAsInt(a, op.applyAsInt(b, x));
+				if (first != second) {
+					throw notAssociative(a, b, x, first, second);
+				}
+			}
+		}
+		int leaves = leaves(values.length);
+		int[] partials = new int[leaves];
+		pool.invoke(new IntTree(values, partials, identity, op, 0, values.length, leaves, 0));
+		return partials[0];
+	}
+
+	public long reduce(long[] values, long identity, LongBinaryOperator op) {
+		int count = sampleCount(values.length);
+		for (int i = 0; i < count; i++) {
+			long x = values[sampleIndex(i, values.length)];
+			long left = op.applyAsLong(identity, x);
+			long right = op.applyAsLong(x, identity);
+			if (left != x || right != x) {
+				throw notIdentity(identity, x, left != x ? left : right);
+			}
+			if (i >= 2) {
+				long a = values[sampleIndex(i - 2, values.length)];
+				long b = values[sampleIndex(i - 1, values.length)];
+				long first = op.applyAsLong(op.applyAsLong(a, b), x);
+				long second = op.applyAsLong(a, op.applyAsLong(b, x));
+				if (first != second) {
+					throw notAssociative(a, b, x, first, second);
+				}
+			}
+		}
+		int leaves = leaves(values.length);
+		long[] partials = new long[leaves];
+		pool.invoke(new LongTree(values, partials, identity, op, 0, values.length, leaves, 0));
+		return partials[0];
+	}
+
+	public double reduce(double[] values, double identity, DoubleBinaryOperator op) {
+		int count = sampleCount(values.length);
+		for (int i = 0; i < count; i++) {
+			double x = values[sampleIndex(i, values.length)];
+			double left = op.applyAsDouble(identity, x);
+			double right = op.applyAsDouble(x, identity);
+			if (!same(left, x) || !same(right, x)) {
+				throw notIdentity(identity, x, same(left, x) ? right : left);
+			}
+			if (i >= 2) {
+				double a = values[sampleIndex(i - 2, values.length)];
+				double b = values[sampleIndex(i - 1, values.length)];
+				double first = op.applyAsDouble(op.applyAsDouble(a, b), x);
+				double second = op.applyAsDouble(a, op.applyAsDouble(b, x));
+				if (!closeEnough(first, second, java.lang.Math.abs(a) + java.lang.Math.abs(b) + java.lang.Math.abs(x))) {
+					throw notAssociative(a, b, x, first, second);
+				}
+			}
+		}
+		int leaves = leaves(values.length);
+		double[] partials = new double[leaves];
+		pool.invoke(new DoubleTree(values, partials, identity, op, 0, values.length, leaves, 0));
+		return partials[0];
+	}
+
+	//== except that NaN is the same as NaN.
+	private static boolean same(double a, double b) {
+		return a == b || (a != a && b != b);
+	}
+
+	//"operands" is |a| + |b| + |c|: a sum that cancels rounds relative to its operands, a product relative to its result.
+	private static boolean closeEnough(double first, double second, double operands) {
+		if (same(first, second)) {
+			return true;
+		}
+		double scale = java.lang.Math.max(operands, java.lang.Math.max(java.lang.Math.abs(first), java.lang.Math.abs(second)));
+		return java.lang.Math.abs(first - second) <= TOLERANCE * scale;
+	}
+
+	//The elements must not be null, unless the operator handles null. A list without random access is copied first.
+	@SuppressWarnings("unchecked")
+	public <T> T reduce(List<? extends T> elements, T identity, BinaryOperator<T> op) {
+		List<? extends T> list = elements instanceof RandomAccess ? elements
+				: (List<? extends T>) Arrays.asList(elements.toArray());
+		int size = list.size();
+		int count = sampleCount(size);
+		for (int i = 0; i < count; i++) {
+			T x = list.get(sampleIndex(i, size));
+			T left = op.apply(identity, x);
+			T right = op.apply(x, identity);
+			if (!Objects.equals(left, x) || !Objects.equals(right, x)) {
+				throw notIdentity(identity, x, !Objects.equals(left, x) ? left : right);
+			}
+			if (i >= 2) {
+				T a = list.get(sampleIndex(i - 2, size));
+				T b = list.get(sampleIndex(i - 1, size));
+				T first = op.apply(op.apply(a, b), x);
+				T second = op.apply(a, op.apply(b, x));
+				if (!Objects.equals(first, second)) {
+					throw notAssociative(a, b, x, first, second);
+				}
+			}
+		}
+		int leaves = leaves(size);
+		Object[] partials = new Object[leaves];
+		pool.invoke(new ObjectTree<>(list, partials, identity, op, 0, size, leaves, 0));
+		return (T) partials[0];
+	}
+
+	/*
+	 * Reduces [from, to) with "leaves" accumulators, written to partials[slot, slot + leaves).
+	 * The range is cut in proportion to the leaves of each half, the halves run in parallel and
+	 * then the right half's result is combined into the left one's slot.
+	 */
+	private abstract static class Tree extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		final int from;
+		final int to;
+		final int leaves;
+		final int slot;
+
+		Tree(int from, int to, int leaves, int slot) {
+			this.from = from;
+			this.to = to;
+			this.leaves = leaves;
+			this.slot = slot;
+		}
+
+		abstract Tree child(int from, int to, int leaves, int slot);
+
+		abstract void leaf();
+
+		abstract void combine(int left, int right);
+
+		@Override
+		protected void compute() {
+			if (leaves == 1) {
+				leaf();
+				return;
+			}
+			int half = leaves / 2;
+			int middle = from + (int) ((long) (to - from) * half / leaves);
+			invokeAll(child(from, middle, half, slot), child(middle, to, leaves - half, slot + half));
+			combine(slot, slot + half);
+		}
+	}
+
+	private static final class IntTree extends Tree {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] values;
+		private final int[] partials;
+		private final int identity;
+		private final IntBinaryOperator op;
+
+		IntTree(int[] values, int[] partials, int identity, IntBinaryOperator op, int from, int to, int leaves, int slot) {
+			super(from, to, leaves, slot);
+			this.values = values;
+			this.partials = partials;
+			this.identity = identity;
+			this.op = op;
+		}
+
+		@Override
+		Tree child(int from, int to, int leaves, int slot) {
+			return new IntTree(values, partials, identity, op, from, to, leaves, slot);
+		}
+
+		@Override
+		void leaf() {
+			int result = identity;
+			for (int i = from; i < to; i++) {
+				result = op.applyAsInt(result, values[i]);
+			}
+			partials[slot] = result;
+		}
+
+		@Override
+		void combine(int left, int right) {
+			partials[left] = op.applyAsInt(partials[left], partials[right]);
+		}
+	}
+
+	private static final class LongTree extends Tree {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long[] values;
+		private final long[] partials;
+		private final long identity;
+		private final LongBinaryOperator op;
+
+		LongTree(long[] values, long[] partials, long identity, LongBinaryOperator op, int from, int to, int leaves,
+				int slot) {
+			super(from, to, leaves, slot);
+			this.values = values;
+			this.partials = partials;
+			this.identity = identity;
+			this.op = op;
+		}
+
+		@Override
+		Tree child(int from, int to, int leaves, int slot) {
+			return new LongTree(values, partials, identity, op, from, to, leaves, slot);
+		}
+
+		@Override
+		void leaf() {
+			long result = identity;
+			for (int i = from; i < to; i++) {
+				result = op.applyAsLong(result, values[i]);
+			}
+			partials[slot] = result;
+		}
+
+		@Override
+		void combine(int left, int right) {
+			partials[left] = op.applyAsLong(partials[left], partials[right]);
+		}
+	}
+
+	private static final class DoubleTree extends Tree {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] values;
+		private final double[] partials;
+		private final double identity;
+		private final DoubleBinaryOperator op;
+
+		DoubleTree(double[] values, double[] partials, double identity, DoubleBinaryOperator op, int from, int to,
+				int leaves, int slot) {
+			super(from, to, leaves, slot);
+			this.values = values;
+			this.partials = partials;
+			this.identity = identity;
+			this.op = op;
+		}
+
+		@Override
+		Tree child(int from, int to, int leaves, int slot) {
+			return new DoubleTree(values, partials, identity, op, from, to, leaves, slot);
+		}
+
+		@Override
+		void leaf() {
+			double result = identity;
+			for (int i = from; i < to; i++) {
+				result = op.applyAsDouble(result, values[i]);
+			}
+			partials[slot] = result;
+		}
+
+		@Override
+		void combine(int left, int right) {
+			partials[left] = op.applyAsDouble(partials[left], partials[right]);
+		}
+	}
+
+	private static final class ObjectTree<T> extends Tree {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<? extends T> values;
+		private final Object[] partials;
+		private final T identity;
+		private final BinaryOperator<T> op;
+
+		ObjectTree(List<? extends T> values, Object[] partials, T identity, BinaryOperator<T> op, int from, int to,
+				int leaves, int slot) {
+			super(from, to, leaves, slot);
+			this.values = values;
+			this.partials = partials;
+			this.identity = identity;
+			this.op = op;
+		}
+
+		@Override
+		Tree child(int from, int to, int leaves, int slot) {
+			return new ObjectTree<>(values, partials, identity, op, from, to, leaves, slot);
+		}
+
+		@Override
+		void leaf() {
+			T result = identity;
+			for (int i = from; i < to; i++) {
+				result = op.apply(result, values.get(i));
+			}
+			partials[slot] = result;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		void combine(int left, int right) {
+			partials[left] = op.apply((T) partials[left], (T) partials[right]);
+		}
+	}
+}
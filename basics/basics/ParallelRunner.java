@@ -0,0 +1,168 @@
+package basics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/*
+ * Runs parallel stream pipelines somewhere else than the common ForkJoinPool.
+ *
+ * A parallel stream forks its tasks into the pool of the thread that runs the terminal
+ * operation, so a pipeline started from a task of our own pool stays in that pool:
+ *
+ *   ParallelRunner runner = ParallelRunner.withParallelism(4);
+ *   boolean bigPrice = runner.call(() -> productList.parallelStream()
+ *       .map(product -> product.getPrice() * 12).anyMatch(price -> price > 200));
+ *
+ * call() and run() work that way and need a ForkJoinPool. A plain Executor cannot host a
+ * parallel stream, so map(), anyMatch() and reduce() split a List into at most "parallelism"
+ * chunks themselves, run a sequential stream per chunk on the executor and combine the parts.
+ * They work with either kind of runner and never use more than "parallelism" tasks at once.
+ */
+public final class ParallelRunner implements AutoCloseable {
+
+	private final Executor executor;
+	private final int parallelism;
+	private final boolean owned;
+
+	private ParallelRunner(Executor executor, int parallelism, boolean owned) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1, was " + parallelism);
+		}
+		this.executor = executor;
+		this.parallelism = parallelism;
+		this.owned = owned;
+	}
+
+	//A runner with a pool of its own, which close() shuts down.
+	public static ParallelRunner withParallelism(int parallelism) {
+		return new ParallelRunner(new ForkJoinPool(parallelism), parallelism, true);
+	}
+
+	public static ParallelRunner on(ForkJoinPool pool) {
+		return new ParallelRunner(pool, pool.getParallelism(), false);
+	}
+
+	public static ParallelRunner on(Executor executor, int parallelism) {
+		return new ParallelRunner(executor, parallelism, false);
+	}
+
+	public int parallelism() {
+		return parallelism;
+	}
+
+	//Runs a whole stream pipeline, including its terminal operation, inside the pool.
+	public <T> T call(Supplier<T> pipeline) {
+		ForkJoinTask<T> task = pool().submit(() -> pipeline.get());
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			task.cancel(true);
+			throw new CompletionException(e);
+		} catch (ExecutionException e) {
+			throw unwrap(e.getCause());
+		}
+	}
+
+	public void run(Runnable pipeline) {
+		call(() -> {
+			pipeline.run();
+			return null;
+		});
+	}
+
+	public <T> CompletableFuture<T> submit(Supplier<T> pipeline) {
+		return CompletableFuture.supplyAsync(pipeline, executor);
+	}
+
+	public <T, R> List<R> map(List<T> source, Function<? super T, ? extends R> mapper) {
+		List<List<R>> parts = inChunks(source,
+				chunk -> chunk.stream().<R>map(mapper).collect(Collectors.toList()));
+		List<R> result = new ArrayList<>(source.size());
+		for (List<R> part : parts) {
+			result.addAll(part);
+		}
+		return result;
+	}
+
+	//Chunks that start after a match has been found skip their work.
+	public <T> boolean anyMatch(List<T> source, Predicate<? super T> predicate) {
+		AtomicBoolean found = new AtomicBoolean();
+		inChunks(source, chunk -> {
+			if (!found.get() && chunk.stream().anyMatch(predicate)) {
+				found.set(true);
+			}
+			return null;
+		});
+		return found.get();
+	}
+
+	//Like Stream.reduce(identity, accumulator, combiner): the identity is used once per chunk.
+	public <T, U> U reduce(List<T> source, U identity, BiFunction<U, ? super T, U> accumulator,
+			BinaryOperator<U> combiner) {
+		List<U> parts = inChunks(source, chunk -> chunk.stream().reduce(identity, accumulator, combiner));
+		//Every part started from the identity already, so the first part starts the result.
+		U result = parts.get(0);
+		for (int i = 1; i < parts.size(); i++) {
+			result = combiner.apply(result, parts.get(i));
+		}
+		return result;
+	}
+
+	private <T, R> List<R> inChunks(List<T> source, Function<List<T>, R> work) {
+		int size = source.size();
+		int chunks = java.lang.Math.max(1, java.lang.Math.min(parallelism, size));
+		List<CompletableFuture<R>> futures = new ArrayList<>(chunks);
+		for (int i = 0; i < chunks; i++) {
+			List<T> chunk = source.subList((int) ((long) size * i / chunks), (int) ((long) size * (i + 1) / chunks));
+			futures.add(CompletableFuture.supplyAsync(() -> work.apply(chunk), executor));
+		}
+		List<R> results = new ArrayList<>(chunks);
+		for (CompletableFuture<R> future : futures) {
+			try {
+				results.add(future.join());
+			} catch (CompletionException e) {
+				throw unwrap(e.getCause());
+			}
+		}
+		return results;
+	}
+
+	private ForkJoinPool pool() {
+		if (!(executor instanceof ForkJoinPool)) {
+			throw new IllegalStateException("parallel streams can only be bound to a ForkJoinPool, this runner uses "
+					+ executor.getClass().getName());
+		}
+		return (ForkJoinPool) executor;
+	}
+
+	private static RuntimeException unwrap(Throwable cause) {
+		if (cause instanceof RuntimeException) {
+			return (RuntimeException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return new CompletionException(cause);
+	}
+
+	@Override
+	public void close() {
+		if (owned) {
+			((ForkJoinPool) executor).shutdown();
+		}
+	}
+}
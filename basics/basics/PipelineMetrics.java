@@ -0,0 +1,302 @@
+package basics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/*
+ * Counts what every stage of a stream pipeline does, instead of a counter field and
+ * log.info("filter() was called") lines as in StreamApi.
+ *
+ * The functions given to a stage are wrapped so that each call is counted and timed:
+ *
+ *   PipelineMetrics metrics = new PipelineMetrics();
+ *   List<String> result = list.stream()
+ *       .filter(metrics.filter("contains 2", element -> element.contains("2")))
+ *       .map(metrics.map("upper case", String::toUpperCase))
+ *       .collect(metrics.collect("to list", Collectors.toList()));
+ *   System.out.print(metrics.report());
+ *
+ * For every stage it records the calls of its function, the elements in and out (out / in is
+ * the selectivity of a filter), the nanoseconds spent in the function and, with
+ * withAllocation(), the bytes the calling thread allocated meanwhile. Stateful stages like
+ * sorted() are wrapped with stage(), which counts the elements around them, and a timed
+ * comparator. PlannedStream.instrumentedStream() wraps every stage of a plan.
+ *
+ * The counters are LongAdders, so parallel streams can update them without contention.
+ * snapshot() and toMap() export the numbers, e.g. to a metrics registry, report() prints them.
+ * Timing costs two System.nanoTime() calls per element, and allocation two more calls into
+ * the ThreadMXBean, so this is for finding the slow stage, not for every run.
+ */
+public final class PipelineMetrics {
+
+	//The live counters of one stage.
+	static final class Stage {
+
+		final String name;
+		final int order;
+		final LongAdder calls = new LongAdder();
+		final LongAdder in = new LongAdder();
+		final LongAdder out = new LongAdder();
+		final LongAdder nanos = new LongAdder();
+		final LongAdder allocatedBytes = new LongAdder();
+
+		Stage(String name, int order) {
+			this.name = name;
+			this.order = order;
+		}
+
+		void reset() {
+			calls.reset();
+			in.reset();
+			out.reset();
+			nanos.reset();
+			allocatedBytes.reset();
+		}
+	}
+
+	//The numbers of one stage at the time of snapshot().
+	public static final class Snapshot {
+
+		private final String name;
+		private final long calls;
+		private final long in;
+		private final long out;
+		private final long nanos;
+		private final long allocatedBytes;
+
+		Snapshot(Stage stage, boolean allocationMeasured) {
+			this.name = stage.name;
+			this.calls = stage.calls.sum();
+			this.in = stage.in.sum();
+			this.out = stage.out.sum();
+			this.nanos = stage.nanos.sum();
+			this.allocatedBytes = allocationMeasured ? stage.allocatedBytes.sum() : -1;
+		}
+
+		public String name() {
+			return name;
+		}
+
+		public long calls() {
+			return calls;
+		}
+
+		public long in() {
+			return in;
+		}
+
+		public long out() {
+			return out;
+		}
+
+		public long nanos() {
+			return nanos;
+		}
+
+		//-1 if allocation is not measured.
+		public long allocatedBytes() {
+			return allocatedBytes;
+		}
+
+		//The share of elements let through, NaN before any came in.
+		public double selectivity() {
+			return in == 0 ? Double.NaN : (double) out / in;
+		}
+
+		public double nanosPerCall() {
+			return calls == 0 ? Double.NaN : (double) nanos / calls;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-24s %10d %10d %10d %8.3f %14d %12.1f %14s", name, calls, in, out, selectivity(),
+					nanos, nanosPerCall(), allocatedBytes < 0 ? "-" : Long.toString(allocatedBytes));
+		}
+	}
+
+	private final Map<String, Stage> stages = new ConcurrentHashMap<>();
+	private final AtomicInteger order = new AtomicInteger();
+	private final com.sun.management.ThreadMXBean allocation;
+
+	public PipelineMetrics() {
+		this(null);
+	}
+
+	private PipelineMetrics(com.sun.management.ThreadMXBean allocation) {
+		this.allocation = allocation;
+	}
+
+	//Also measures allocated bytes, where the JVM supports it (HotSpot does), otherwise the same as new.
+	public static PipelineMetrics withAllocation() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+			if (bean.isThreadAllocatedMemorySupported()) {
+				bean.setThreadAllocatedMemoryEnabled(true);
+				return new PipelineMetrics(bean);
+			}
+		}
+		return new PipelineMetrics();
+	}
+
+	private Stage stage(String name) {
+		return stages.computeIfAbsent(name, key -> new Stage(key, order.getAndIncrement()));
+	}
+
+	public <T> Predicate<T> filter(String name, Predicate<? super T> predicate) {
+		Stage stage = stage(name);
+		return element -> {
+			long allocated = allocatedBytes();
+			long start = System.nanoTime();
+			boolean passed = predicate.test(element);
+			record(stage, start, allocated);
+			stage.in.increment();
+			if (passed) {
+				stage.out.increment();
+			}
+			return passed;
+		};
+	}
+
+	public <T, R> Function<T, R> map(String name, Function<? super T, ? extends R> mapper) {
+		Stage stage = stage(name);
+		return element -> {
+			long allocated = allocatedBytes();
+			long start = System.nanoTime();
+			R result = mapper.apply(element);
+			record(stage, start, allocated);
+			stage.in.increment();
+			stage.out.increment();
+			return result;
+		};
+	}
+
+	//Counts the calls of a comparator, e.g. for sorted(), without counting elements.
+	public <T> Comparator<T> comparator(String name, Comparator<? super T> comparator) {
+		Stage stage = stage(name);
+		return (a, b) -> {
+			long allocated = allocatedBytes();
+			long start = System.nanoTime();
+			int result = comparator.compare(a, b);
+			record(stage, start, allocated);
+			return result;
+		};
+	}
+
+	/*
+	 * Counts the elements going into and coming out of any intermediate operation, e.g.
+	 *   metrics.stage("sorted", stream, s -> s.sorted(metrics.comparator("sorted", order)))
+	 */
+	public <T, R> Stream<R> stage(String name, Stream<T> stream, Function<Stream<T>, Stream<R>> operation) {
+		Stage stage = stage(name);
+		return operation.apply(stream.peek(element -> stage.in.increment())).peek(element -> stage.out.increment());
+	}
+
+	//Counts and times the accumulator, combiner and finisher of a collector, "in" is the accumulated elements.
+	public <T, A, R> Collector<T, A, R> collect(String name, Collector<T, A, R> collector) {
+		Stage stage = stage(name);
+		Supplier<A> supplier = collector.supplier();
+		BiConsumer<A, T> accumulator = collector.accumulator();
+		BinaryOperator<A> combiner = collector.combiner();
+		Function<A, R> finisher = collector.finisher();
+		Set<Collector.Characteristics> characteristics = EnumSet.noneOf(Collector.Characteristics.class);
+		characteristics.addAll(collector.characteristics());
+		//the stream skips the finisher of an IDENTITY_FINISH collector, but this one has to count the result
+		characteristics.remove(Collector.Characteristics.IDENTITY_FINISH);
+		BiConsumer<A, T> countingAccumulator = (container, element) -> {
+			long allocated = allocatedBytes();
+			long start = System.nanoTime();
+			accumulator.accept(container, element);
+			record(stage, start, allocated);
+			stage.in.increment();
+		};
+		BinaryOperator<A> countingCombiner = (left, right) -> {
+			long allocated = allocatedBytes();
+			long start = System.nanoTime();
+			A combined = combiner.apply(left, right);
+			record(stage, start, allocated);
+			return combined;
+		};
+		Function<A, R> countingFinisher = container -> {
+			long allocated = allocatedBytes();
+			long start = System.nanoTime();
+			R result = finisher.apply(container);
+			record(stage, start, allocated);
+			stage.out.increment();
+			return result;
+		};
+		return Collector.of(supplier, countingAccumulator, countingCombiner, countingFinisher,
+				characteristics.toArray(new Collector.Characteristics[0]));
+	}
+
+	private long allocatedBytes() {
+		return allocation == null ? 0 : allocation.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private void record(Stage stage, long start, long allocatedBefore) {
+		stage.nanos.add(System.nanoTime() - start);
+		stage.calls.increment();
+		if (allocation != null) {
+			stage.allocatedBytes.add(allocatedBytes() - allocatedBefore);
+		}
+	}
+
+	//All stages in the order they were first used.
+	public List<Snapshot> snapshot() {
+		List<Stage> ordered = new ArrayList<>(stages.values());
+		ordered.sort(Comparator.comparingInt(stage -> stage.order));
+		List<Snapshot> snapshot = new ArrayList<>(ordered.size());
+		for (Stage stage : ordered) {
+			snapshot.add(new Snapshot(stage, allocation != null));
+		}
+		return snapshot;
+	}
+
+	//Flat names like "contains 2.calls" for a metrics registry that takes name/value pairs.
+	public Map<String, Long> toMap() {
+		Map<String, Long> map = new LinkedHashMap<>();
+		for (Snapshot stage : snapshot()) {
+			map.put(stage.name + ".calls", stage.calls);
+			map.put(stage.name + ".in", stage.in);
+			map.put(stage.name + ".out", stage.out);
+			map.put(stage.name + ".nanos", stage.nanos);
+			if (allocation != null) {
+				map.put(stage.name + ".allocatedBytes", stage.allocatedBytes);
+			}
+		}
+		return map;
+	}
+
+	//Zeroes the counters in place: streams built before still hold their stages and keep counting.
+	public void reset() {
+		for (Stage stage : stages.values()) {
+			stage.reset();
+		}
+	}
+
+	public String report() {
+		java.lang.StringBuilder report = new java.lang.StringBuilder(String.format(
+				"%-24s %10s %10s %10s %8s %14s %12s %14s%n",
+				"stage", "calls", "in", "out", "out/in", "nanos", "nanos/call", "allocated"));
+		for (Snapshot stage : snapshot()) {
+			report.append(stage).append(System.lineSeparator());
+		}
+		return report.toString();
+	}
+}
@@ -0,0 +1,432 @@
+package basics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * A stream pipeline that is first written down as a plan and put into the right order before
+ * it runs.
+ *
+ * StreamApi shows that map(...).skip(2) calls the map function for elements it then throws
+ * away, and that skip(), filter() and distinct() belong at the top of the pipeline. A
+ * PlannedStream records its intermediate operations instead of running them, and stream()
+ * rewrites the plan first:
+ *
+ *   PlannedStream<String> names = PlannedStream.of(list)
+ *       .pureMap(element -> element.substring(0, 3))
+ *       .skip(2);
+ *   long size = names.stream().count();    //runs skip(2).map(...)
+ *
+ * Operations can only be moved when that can't change the result, so a map or filter is moved
+ * only when declared pure with pureMap()/pureFilter(): its function has no side effects and
+ * gives the same answer for equal elements. The rewrites are
+ *
+ * - skip() and limit() move before a pure map, which never changes the number of elements
+ * - a pure filter moves before sorted() and distinct(), which then have fewer elements to handle
+ * - limit(a).skip(b) becomes skip(b).limit(a - b)
+ * - adjacent maps are fused into one function and adjacent filters into one predicate (pure
+ *   with pure only, so a pure one stays movable), adjacent skips, limits and distincts into one
+ *
+ * map(), filter() and peek() without "pure" stay where they are and keep their calls, so code
+ * that counts the calls, like wasCalled() in StreamApi, still sees them all. A filter on the
+ * result of a map can't move before that map, it needs the mapped value.
+ *
+ * A PlannedStream is immutable, every operation returns a new one, and the source is a
+ * Supplier, so stream() can be called again and gives a fresh stream each time. Unlike a
+ * Stream it can be kept in a field and used for any number of terminal operations, and
+ * count(), findFirst(), collect() and the others each run the plan again from the source, and
+ * close the stream they ran, so a source like () -> Files.lines(path) or MappedLines releases
+ * its file each time:
+ *
+ *   PlannedStream<String> withB = PlannedStream.of(() -> Stream.of("a", "b", "c"))
+ *       .filter(element -> element.contains("b"));
+ *   Optional<String> anyElement = withB.findAny();
+ *   Optional<String> firstElement = withB.findFirst();
+ *
+ * When the source or the plan is expensive, memoized() runs it once, on the first terminal
+ * operation, keeps the elements and lets every later run (and every operation added after
+ * it) start from them. explain()
+ * shows the plan as written and as it runs, instrumentedStream() runs it with every stage
+ * counted in PipelineMetrics.
+ */
+public final class PlannedStream<T> {
+
+	enum Kind {
+		MAP, FILTER, SKIP, LIMIT, SORTED, DISTINCT, PEEK
+	}
+
+	//One intermediate operation. "function" holds the Function, Predicate, Comparator or Consumer.
+	static final class Op {
+
+		final Kind kind;
+		final Object function;
+		final long n;
+		final boolean pure;
+
+		Op(Kind kind, Object function, long n, boolean pure) {
+			this.kind = kind;
+			this.function = function;
+			this.n = n;
+			this.pure = pure;
+		}
+
+		@Override
+		public String toString() {
+			switch (kind) {
+			case MAP:
+				return pure ? "pureMap" : "map";
+			case FILTER:
+				return pure ? "pureFilter" : "filter";
+			case SKIP:
+				return "skip(" + n + ")";
+			case LIMIT:
+				return "limit(" + n + ")";
+			case SORTED:
+				return function == null ? "sorted" : "sorted(comparator)";
+			case DISTINCT:
+				return "distinct";
+			default:
+				return "peek";
+			}
+		}
+	}
+
+	private final Supplier<? extends Stream<?>> source;
+	private final List<Op> ops;
+	private final boolean parallel;
+
+	private PlannedStream(Supplier<? extends Stream<?>> source, List<Op> ops, boolean parallel) {
+		this.source = source;
+		this.ops = ops;
+		this.parallel = parallel;
+	}
+
+	//The supplier must return a new stream of the same elements on every call.
+	public static <T> PlannedStream<T> of(Supplier<? extends Stream<T>> source) {
+		return new PlannedStream<>(Objects.requireNonNull(source, "source"), Collections.emptyList(), false);
+	}
+
+	public static <T> PlannedStream<T> of(Collection<T> source) {
+		Objects.requireNonNull(source, "source");
+		return of(source::stream);
+	}
+
+	private <R> PlannedStream<R> with(Op op) {
+		List<Op> next = new ArrayList<>(ops.size() + 1);
+		next.addAll(ops);
+		next.add(op);
+		return new PlannedStream<>(source, Collections.unmodifiableList(next), parallel);
+	}
+
+	public <R> PlannedStream<R> map(Function<? super T, ? extends R> mapper) {
+		return with(new Op(Kind.MAP, Objects.requireNonNull(mapper, "mapper"), 0, false));
+	}
+
+	//A map whose function has no side effects, so it may be called for fewer elements.
+	public <R> PlannedStream<R> pureMap(Function<? super T, ? extends R> mapper) {
+		return with(new Op(Kind.MAP, Objects.requireNonNull(mapper, "mapper"), 0, true));
+	}
+
+	public PlannedStream<T> filter(Predicate<? super T> predicate) {
+		return with(new Op(Kind.FILTER, Objects.requireNonNull(predicate, "predicate"), 0, false));
+	}
+
+	//A filter whose predicate has no side effects and agrees for equal elements.
+	public PlannedStream<T> pureFilter(Predicate<? super T> predicate) {
+		return with(new Op(Kind.FILTER, Objects.requireNonNull(predicate, "predicate"), 0, true));
+	}
+
+	public PlannedStream<T> skip(long n) {
+		if (n < 0) {
+			throw new IllegalArgumentException("skip must not be negative, was " + n);
+		}
+		return with(new Op(Kind.SKIP, null, n, true));
+	}
+
+	public PlannedStream<T> limit(long maxSize) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("limit must not be negative, was " + maxSize);
+		}
+		return with(new Op(Kind.LIMIT, null, maxSize, true));
+	}
+
+	public PlannedStream<T> sorted() {
+		return with(new Op(Kind.SORTED, null, 0, true));
+	}
+
+	public PlannedStream<T> sorted(Comparator<? super T> comparator) {
+		return with(new Op(Kind.SORTED, Objects.requireNonNull(comparator, "comparator"), 0, true));
+	}
+
+	public PlannedStream<T> distinct() {
+		return with(new Op(Kind.DISTINCT, null, 0, true));
+	}
+
+	public PlannedStream<T> peek(Consumer<? super T> action) {
+		return with(new Op(Kind.PEEK, Objects.requireNonNull(action, "action"), 0, false));
+	}
+
+	public PlannedStream<T> parallel() {
+		return new PlannedStream<>(source, ops, true);
+	}
+
+	public PlannedStream<T> sequential() {
+		return new PlannedStream<>(source, ops, false);
+	}
+
+	//A new stream from the source with the rewritten plan applied. Closing it closes the source stream.
+	public Stream<T> stream() {
+		return build(optimize(ops), null);
+	}
+
+	//A new stream with the operations in the order they were written, to compare against.
+	public Stream<T> streamAsWritten() {
+		return build(ops, null);
+	}
+
+	/*
+	 * A PlannedStream over the output of this one, computed by the first terminal operation
+	 * and kept for all later ones, from any thread. Operations added to it work on the kept
+	 * elements. A short-circuiting findFirst() still computes all elements the first time.
+	 */
+	public PlannedStream<T> memoized() {
+		return new PlannedStream<>(new Memo<>(this), Collections.emptyList(), parallel);
+	}
+
+	//The source of a memoized PlannedStream.
+	private static final class Memo<T> implements Supplier<Stream<T>> {
+
+		private PlannedStream<T> plan;
+		private volatile Object[] elements;
+
+		Memo(PlannedStream<T> plan) {
+			this.plan = plan;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Stream<T> get() {
+			Object[] result = elements;
+			if (result == null) {
+				synchronized (this) {
+					result = elements;
+					if (result == null) {
+						try (Stream<T> stream = plan.stream()) {
+							result = stream.toArray();
+						}
+						elements = result;
+						plan = null;
+					}
+				}
+			}
+			return (Stream<T>) Arrays.stream(result);
+		}
+	}
+
+	public long count() {
+		try (Stream<T> stream = stream()) {
+			return stream.count();
+		}
+	}
+
+	public Optional<T> findFirst() {
+		try (Stream<T> stream = stream()) {
+			return stream.findFirst();
+		}
+	}
+
+	public Optional<T> findAny() {
+		try (Stream<T> stream = stream()) {
+			return stream.findAny();
+		}
+	}
+
+	public boolean anyMatch(Predicate<? super T> predicate) {
+		try (Stream<T> stream = stream()) {
+			return stream.anyMatch(predicate);
+		}
+	}
+
+	public boolean allMatch(Predicate<? super T> predicate) {
+		try (Stream<T> stream = stream()) {
+			return stream.allMatch(predicate);
+		}
+	}
+
+	public void forEach(Consumer<? super T> action) {
+		try (Stream<T> stream = stream()) {
+			stream.forEach(action);
+		}
+	}
+
+	public Optional<T> reduce(BinaryOperator<T> accumulator) {
+		try (Stream<T> stream = stream()) {
+			return stream.reduce(accumulator);
+		}
+	}
+
+	public T reduce(T identity, BinaryOperator<T> accumulator) {
+		try (Stream<T> stream = stream()) {
+			return stream.reduce(identity, accumulator);
+		}
+	}
+
+	public <R, A> R collect(Collector<? super T, A, R> collector) {
+		try (Stream<T> stream = stream()) {
+			return stream.collect(collector);
+		}
+	}
+
+	public List<T> toList() {
+		try (Stream<T> stream = stream()) {
+			return stream.collect(Collectors.toList());
+		}
+	}
+
+	//Like stream(), with every stage counted in metrics under its place in the plan, e.g. "2 pureMap".
+	public Stream<T> instrumentedStream(PipelineMetrics metrics) {
+		return build(optimize(ops), Objects.requireNonNull(metrics, "metrics"));
+	}
+
+	public String explain() {
+		return "as written: " + describe(ops) + "\nexecuted:   " + describe(optimize(ops));
+	}
+
+	private static String describe(List<Op> plan) {
+		return plan.stream().map(Op::toString).collect(Collectors.joining(".", "source.", ""));
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Stream<T> build(List<Op> plan, PipelineMetrics metrics) {
+		Stream stream = source.get();
+		stream = parallel ? (Stream) stream.parallel() : (Stream) stream.sequential();
+		for (int i = 0; i < plan.size(); i++) {
+			Op op = plan.get(i);
+			if (metrics == null) {
+				stream = apply(op, stream, op.function);
+				continue;
+			}
+			String name = (i + 1) + " " + op;
+			switch (op.kind) {
+			case MAP:
+				stream = apply(op, stream, metrics.map(name, (Function) op.function));
+				break;
+			case FILTER:
+				stream = apply(op, stream, metrics.filter(name, (Predicate) op.function));
+				break;
+			case SORTED:
+				Comparator order = op.function == null ? Comparator.naturalOrder() : (Comparator) op.function;
+				stream = metrics.stage(name, stream, s -> apply(op, (Stream) s, metrics.comparator(name, order)));
+				break;
+			default:
+				stream = metrics.stage(name, stream, s -> apply(op, (Stream) s, op.function));
+			}
+		}
+		return stream;
+	}
+
+	//Appends one operation, with "function" in place of the one of the op.
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Stream apply(Op op, Stream stream, Object function) {
+		switch (op.kind) {
+		case MAP:
+			return stream.map((Function) function);
+		case FILTER:
+			return stream.filter((Predicate) function);
+		case SKIP:
+			return stream.skip(op.n);
+		case LIMIT:
+			return stream.limit(op.n);
+		case SORTED:
+			return function == null ? stream.sorted() : stream.sorted((Comparator) function);
+		case DISTINCT:
+			return stream.distinct();
+		case PEEK:
+			return stream.peek((Consumer) function);
+		default:
+			throw new AssertionError(op.kind);
+		}
+	}
+
+	//Applies the rewrites to neighbouring operations until none applies any more.
+	static List<Op> optimize(List<Op> written) {
+		List<Op> plan = new ArrayList<>(written);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int i = 0; i + 1 < plan.size(); i++) {
+				List<Op> rewritten = rewrite(plan.get(i), plan.get(i + 1));
+				if (rewritten != null) {
+					plan.remove(i + 1);
+					plan.remove(i);
+					plan.addAll(i, rewritten);
+					changed = true;
+					i = java.lang.Math.max(i - 2, -1);
+				}
+			}
+		}
+		return plan;
+	}
+
+	//The replacement for "first" followed by "second", or null if there is none.
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static List<Op> rewrite(Op first, Op second) {
+		Kind a = first.kind;
+		Kind b = second.kind;
+		if (a == Kind.MAP && b == Kind.MAP && first.pure == second.pure) {
+			Function fused = ((Function) first.function).andThen((Function) second.function);
+			return Collections.singletonList(new Op(Kind.MAP, fused, 0, first.pure));
+		}
+		if (a == Kind.FILTER && b == Kind.FILTER && first.pure == second.pure) {
+			Predicate p = (Predicate) first.function;
+			Predicate q = (Predicate) second.function;
+			Predicate both = element -> p.test(element) && q.test(element);
+			return Collections.singletonList(new Op(Kind.FILTER, both, 0, first.pure));
+		}
+		if (a == Kind.SKIP && b == Kind.SKIP) {
+			long sum = first.n + second.n;
+			return Collections.singletonList(new Op(Kind.SKIP, null, sum < 0 ? Long.MAX_VALUE : sum, true));
+		}
+		if (a == Kind.LIMIT && b == Kind.LIMIT) {
+			return Collections.singletonList(new Op(Kind.LIMIT, null, java.lang.Math.min(first.n, second.n), true));
+		}
+		if (a == Kind.DISTINCT && b == Kind.DISTINCT) {
+			return Collections.singletonList(first);
+		}
+		if (a == Kind.LIMIT && b == Kind.SKIP) {
+			long skipped = java.lang.Math.min(first.n, second.n);
+			List<Op> swapped = new ArrayList<>(2);
+			swapped.add(new Op(Kind.SKIP, null, skipped, true));
+			swapped.add(new Op(Kind.LIMIT, null, first.n - skipped, true));
+			return swapped;
+		}
+		if (a == Kind.MAP && first.pure && (b == Kind.SKIP || b == Kind.LIMIT)) {
+			return swap(first, second);
+		}
+		if ((a == Kind.SORTED || a == Kind.DISTINCT) && b == Kind.FILTER && second.pure) {
+			return swap(first, second);
+		}
+		return null;
+	}
+
+	private static List<Op> swap(Op first, Op second) {
+		List<Op> swapped = new ArrayList<>(2);
+		swapped.add(second);
+		swapped.add(first);
+		return swapped;
+	}
+}
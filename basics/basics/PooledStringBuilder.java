@@ -0,0 +1,242 @@
+package basics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/*
+ * A StringBuilder whose growth rule can be chosen and whose char[] can come from a pool.
+ *
+ * java.lang.StringBuilder always grows by (oldcapacity*2)+2 and leaves every array it outgrows,
+ * and finally the last one, to the garbage collector. This builder asks its GrowthPolicy for
+ * the next capacity and takes its arrays from a CharArrayPool, giving the old array back
+ * after a regrow and the last one on close():
+ *
+ *   try (PooledStringBuilder sb = new PooledStringBuilder(16, GrowthPolicy.SIZE_CLASS, pool)) {
+ *       sb.append("Hello").append(' ').append(42);
+ *       return sb.toString();
+ *   }
+ *
+ * Like java.lang.StringBuilder it is not thread safe. It can't be used after close().
+ */
+public final class PooledStringBuilder implements CharSequence, Appendable, AutoCloseable {
+
+	private final GrowthPolicy policy;
+	private final CharArrayPool pool;
+	private char[] value;
+	private int count;
+
+	public PooledStringBuilder() {
+		this(16, GrowthPolicy.DOUBLING, CharArrayPool.NONE);
+	}
+
+	public PooledStringBuilder(int capacity) {
+		this(capacity, GrowthPolicy.DOUBLING, CharArrayPool.NONE);
+	}
+
+	public PooledStringBuilder(int capacity, GrowthPolicy policy, CharArrayPool pool) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("capacity must not be negative, was " + capacity);
+		}
+		this.policy = policy;
+		this.pool = pool;
+		this.value = pool.acquire(capacity);
+	}
+
+	public int capacity() {
+		return open().length;
+	}
+
+	public void ensureCapacity(int minimumCapacity) {
+		if (minimumCapacity > open().length) {
+			grow(minimumCapacity);
+		}
+	}
+
+	private void grow(int minCapacity) {
+		char[] grown = pool.acquire(policy.newCapacity(value.length, minCapacity));
+		System.arraycopy(value, 0, grown, 0, count);
+		pool.release(value);
+		value = grown;
+	}
+
+	//Moves the text to the smallest array the pool has for it.
+	public void trimToSize() {
+		if (count < open().length) {
+			char[] trimmed = pool.acquire(count);
+			if (trimmed.length < value.length) {
+				System.arraycopy(value, 0, trimmed, 0, count);
+				pool.release(value);
+				value = trimmed;
+			} else {
+				pool.release(trimmed);
+			}
+		}
+	}
+
+	private char[] open() {
+		if (value == null) {
+			throw new IllegalStateException("builder is closed");
+		}
+		return value;
+	}
+
+	@Override
+	public PooledStringBuilder append(CharSequence text) {
+		if (text == null) {
+			return append("null");
+		}
+		return append(text, 0, text.length());
+	}
+
+	@Override
+	public PooledStringBuilder append(CharSequence text, int start, int end) {
+		if (text == null) {
+			text = "null";
+		}
+		if (start < 0 || start > end || end > text.length()) {
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + text.length());
+		}
+		int length = end - start;
+		ensureCapacity(count + length);
+		if (text instanceof String) {
+			((String) text).getChars(start, end, value, count);
+		} else if (text instanceof PooledStringBuilder) {
+			System.arraycopy(((PooledStringBuilder) text).value, start, value, count, length);
+		} else {
+			for (int i = start; i < end; i++) {
+				value[count + i - start] = text.charAt(i);
+			}
+		}
+		count += length;
+		return this;
+	}
+
+	public PooledStringBuilder append(String text) {
+		return append((CharSequence) text);
+	}
+
+	public PooledStringBuilder append(char[] chars) {
+		ensureCapacity(count + chars.length);
+		System.arraycopy(chars, 0, value, count, chars.length);
+		count += chars.length;
+		return this;
+	}
+
+	@Override
+	public PooledStringBuilder append(char c) {
+		ensureCapacity(count + 1);
+		value[count++] = c;
+		return this;
+	}
+
+	public PooledStringBuilder append(boolean b) {
+		return append(b ? "true" : "false");
+	}
+
+	public PooledStringBuilder append(Object value) {
+		return append(String.valueOf(value));
+	}
+
+	public PooledStringBuilder append(int i) {
+		return append((long) i);
+	}
+
+	//Writes the digits straight into the array, without the String that Long.toString() would create.
+	public PooledStringBuilder append(long l) {
+		if (l == Long.MIN_VALUE) {
+			return append("-9223372036854775808");
+		}
+		int digits = 1;
+		for (long rest = l < 0 ? -l : l; rest >= 10; rest /= 10) {
+			digits++;
+		}
+		int length = l < 0 ? digits + 1 : digits;
+		ensureCapacity(count + length);
+		int pos = count + length;
+		long rest = l < 0 ? -l : l;
+		do {
+			value[--pos] = (char) ('0' + rest % 10);
+			rest /= 10;
+		} while (rest != 0);
+		if (l < 0) {
+			value[--pos] = '-';
+		}
+		count += length;
+		return this;
+	}
+
+	@Override
+	public int length() {
+		return count;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("index " + index + ", length " + count);
+		}
+		return open()[index];
+	}
+
+	public void setCharAt(int index, char c) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("index " + index + ", length " + count);
+		}
+		open()[index] = c;
+	}
+
+	//Like StringBuilder.setLength(): shorter cuts the text, longer pads it with '\0'.
+	public void setLength(int newLength) {
+		if (newLength < 0) {
+			throw new IndexOutOfBoundsException("length " + newLength);
+		}
+		ensureCapacity(newLength);
+		if (newLength > count) {
+			Arrays.fill(value, count, newLength, '\0');
+		}
+		count = newLength;
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return substring(start, end);
+	}
+
+	public String substring(int start, int end) {
+		if (start < 0 || start > end || end > count) {
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + count);
+		}
+		return new String(open(), start, end - start);
+	}
+
+	//Encodes the text without creating a String, see SequenceEncoder. Returns the number of bytes written.
+	public long writeTo(WritableByteChannel channel, SequenceEncoder encoder) throws IOException {
+		return encoder.write(this, channel);
+	}
+
+	public long writeTo(OutputStream out, SequenceEncoder encoder) throws IOException {
+		return encoder.write(this, out);
+	}
+
+	@Override
+	public String toString() {
+		return new String(open(), 0, count);
+	}
+
+	//The backing array, valid up to length(), until the next append or close().
+	char[] array() {
+		return open();
+	}
+
+	//Gives the array back to the pool. Closing twice does nothing.
+	@Override
+	public void close() {
+		if (value != null) {
+			pool.release(value);
+			value = null;
+			count = 0;
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package basics;
+
+public class Product {
+
+	private final int price;
+	private final String name;
+
+	public Product(int price, String name) {
+		this.price = price;
+		this.name = name;
+	}
+
+	public int getPrice() {
+		return price;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return "Product{price=" + price + ", name=" + name + "}";
+	}
+}
@@ -0,0 +1,288 @@
+package basics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IntSummaryStatistics;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/*
+ * Columnar version of a List<Product>.
+ *
+ * Prices are kept in an int[] and names are dictionary encoded: every distinct name is stored
+ * once and each row only keeps the int id of its name. The aggregations of the collector
+ * examples in StreamApi (summingInt, averagingInt, summarizingInt, groupingBy and
+ * partitioningBy on the price) run straight over the int columns, without a Product or an
+ * Integer per row. Product objects are only created when a row is asked for with product(row)
+ * or one of the toMap() conversions.
+ */
+public final class ProductTable {
+
+	private int[] prices;
+	private int[] nameIds;
+	private int size;
+
+	private String[] names = new String[16];
+	private int nameCount;
+	private final Map<String, Integer> nameIndex = new HashMap<>();
+
+	public ProductTable() {
+		this(16);
+	}
+
+	public ProductTable(int capacity) {
+		prices = new int[capacity];
+		nameIds = new int[capacity];
+	}
+
+	public static ProductTable of(Collection<Product> products) {
+		ProductTable table = new ProductTable(products.size());
+		for (Product product : products) {
+			table.add(product.getPrice(), product.getName());
+		}
+		return table;
+	}
+
+	public void add(Product product) {
+		add(product.getPrice(), product.getName());
+	}
+
+	public void add(int price, String name) {
+		if (size == prices.length) {
+			int capacity = java.lang.Math.max(16, size + (size >> 1));
+			prices = Arrays.copyOf(prices, capacity);
+			nameIds = Arrays.copyOf(nameIds, capacity);
+		}
+		prices[size] = price;
+		nameIds[size] = encode(name);
+		size++;
+	}
+
+	private int encode(String name) {
+		Integer id = nameIndex.get(name);
+		if (id == null) {
+			if (nameCount == names.length) {
+				names = Arrays.copyOf(names, nameCount * 2);
+			}
+			id = nameCount;
+			names[nameCount++] = name;
+			nameIndex.put(name, id);
+		}
+		return id;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int price(int row) {
+		checkRow(row);
+		return prices[row];
+	}
+
+	public int nameId(int row) {
+		checkRow(row);
+		return nameIds[row];
+	}
+
+	public String name(int row) {
+		checkRow(row);
+		return names[nameIds[row]];
+	}
+
+	public int distinctNames() {
+		return nameCount;
+	}
+
+	public String nameOf(int nameId) {
+		if (nameId < 0 || nameId >= nameCount) {
+			throw new IndexOutOfBoundsException("name id " + nameId + ", distinct names " + nameCount);
+		}
+		return names[nameId];
+	}
+
+	public Product product(int row) {
+		checkRow(row);
+		return new Product(prices[row], names[nameIds[row]]);
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("row " + row + ", size " + size);
+		}
+	}
+
+	//Same as summingInt(Product::getPrice), but summed in a long so it does not overflow.
+	public long sumPrice() {
+		long sum = 0;
+		int[] column = prices;
+		for (int i = 0; i < size; i++) {
+			sum += column[i];
+		}
+		return sum;
+	}
+
+	//Same as averagingInt(Product::getPrice): 0 for an empty table.
+	public double averagePrice() {
+		return size == 0 ? 0 : (double) sumPrice() / size;
+	}
+
+	//Same as summarizingInt(Product::getPrice).
+	public IntSummaryStatistics priceStatistics() {
+		IntSummaryStatistics statistics = new IntSummaryStatistics();
+		int[] column = prices;
+		for (int i = 0; i < size; i++) {
+			statistics.accept(column[i]);
+		}
+		return statistics;
+	}
+
+	/*
+	 * Same grouping as groupingBy(Product::getPrice). Every row is packed with its price into a
+	 * long (price in the high half, row in the low half) and the longs are sorted, which orders
+	 * the rows by price and keeps the original order inside every group.
+	 */
+	public PriceGroups groupByPrice() {
+		long[] packed = new long[size];
+		for (int i = 0; i < size; i++) {
+			packed[i] = ((long) prices[i] << 32) | i;
+		}
+		Arrays.sort(packed);
+		int[] rows = new int[size];
+		int[] groupPrices = new int[size];
+		int[] starts = new int[size + 1];
+		int groups = 0;
+		for (int i = 0; i < size; i++) {
+			int price = (int) (packed[i] >> 32);
+			if (groups == 0 || groupPrices[groups - 1] != price) {
+				groupPrices[groups] = price;
+				starts[groups] = i;
+				groups++;
+			}
+			rows[i] = (int) packed[i];
+		}
+		starts[groups] = size;
+		return new PriceGroups(Arrays.copyOf(groupPrices, groups), Arrays.copyOf(starts, groups + 1), rows);
+	}
+
+	//Same as partitioningBy(element -> predicate.test(element.getPrice())).
+	public Partition partitionByPrice(IntPredicate predicate) {
+		int[] rows = new int[size];
+		int matching = 0;
+		int rest = size;
+		for (int i = 0; i < size; i++) {
+			if (predicate.test(prices[i])) {
+				rows[matching++] = i;
+			} else {
+				rows[--rest] = i;
+			}
+		}
+		//The rows that did not match were written from the back, put them back in table order.
+		for (int i = matching, j = size - 1; i < j; i++, j--) {
+			int row = rows[i];
+			rows[i] = rows[j];
+			rows[j] = row;
+		}
+		return new Partition(rows, matching);
+	}
+
+	/*
+	 * Rows grouped by price. Groups are sorted by price, group g holds the rows
+	 * rows[starts[g]] to rows[starts[g + 1] - 1].
+	 */
+	public final class PriceGroups {
+
+		private final int[] groupPrices;
+		private final int[] starts;
+		private final int[] rows;
+
+		PriceGroups(int[] groupPrices, int[] starts, int[] rows) {
+			this.groupPrices = groupPrices;
+			this.starts = starts;
+			this.rows = rows;
+		}
+
+		public int groupCount() {
+			return groupPrices.length;
+		}
+
+		public int price(int group) {
+			return groupPrices[group];
+		}
+
+		public int size(int group) {
+			return starts[group + 1] - starts[group];
+		}
+
+		public int row(int group, int index) {
+			if (index < 0 || index >= size(group)) {
+				throw new IndexOutOfBoundsException("index " + index + ", group size " + size(group));
+			}
+			return rows[starts[group] + index];
+		}
+
+		//Converts to the result of groupingBy(Product::getPrice), creating the Product objects.
+		public Map<Integer, List<Product>> toMap() {
+			Map<Integer, List<Product>> map = new LinkedHashMap<>();
+			for (int group = 0; group < groupPrices.length; group++) {
+				List<Product> products = new ArrayList<>(size(group));
+				for (int i = starts[group]; i < starts[group + 1]; i++) {
+					products.add(product(rows[i]));
+				}
+				map.put(groupPrices[group], products);
+			}
+			return map;
+		}
+	}
+
+	//Rows split by a predicate: rows[0, matching) passed it, rows[matching, length) did not.
+	public final class Partition {
+
+		private final int[] rows;
+		private final int matching;
+
+		Partition(int[] rows, int matching) {
+			this.rows = rows;
+			this.matching = matching;
+		}
+
+		public int trueCount() {
+			return matching;
+		}
+
+		public int falseCount() {
+			return rows.length - matching;
+		}
+
+		public int trueRow(int index) {
+			if (index < 0 || index >= matching) {
+				throw new IndexOutOfBoundsException("index " + index + ", true count " + matching);
+			}
+			return rows[index];
+		}
+
+		public int falseRow(int index) {
+			if (index < 0 || index >= falseCount()) {
+				throw new IndexOutOfBoundsException("index " + index + ", false count " + falseCount());
+			}
+			return rows[matching + index];
+		}
+
+		//Converts to the result of partitioningBy(), creating the Product objects.
+		public Map<Boolean, List<Product>> toMap() {
+			Map<Boolean, List<Product>> map = new HashMap<>();
+			List<Product> passed = new ArrayList<>(matching);
+			List<Product> failed = new ArrayList<>(falseCount());
+			for (int i = 0; i < rows.length; i++) {
+				(i < matching ? passed : failed).add(product(rows[i]));
+			}
+			map.put(false, failed);
+			map.put(true, passed);
+			return map;
+		}
+	}
+}
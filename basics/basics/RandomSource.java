@@ -0,0 +1,230 @@
+package basics;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.Spliterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/*
+ * Random numbers for parallel streams, without a shared seed and reproducible from a seed.
+ *
+ * new Random().doubles(n) and Math.random() share one seed that every number updates with a
+ * compare-and-set, so the threads of a parallel Monte Carlo run mostly wait for each other.
+ * A RandomSource has no state to share: the number at index i is computed from the seed and i
+ * alone, with the SplitMix64 function that SplittableRandom uses. So
+ *
+ * - a parallel stream splits the index range like an IntStream.range() and every split
+ *   computes its own numbers, nothing is contended
+ * - the numbers are the same for a seed however the stream is split, on any machine, and the
+ *   same as new SplittableRandom(seed) returns one after the other
+ * - fill() writes whole arrays, parallelFill() with all cores
+ *
+ *   RandomSource random = RandomSource.seeded(42);
+ *   double average = random.doubles(1_000_000).parallel().average().getAsDouble();
+ *   long inside = LongStream.range(0, n).parallel()
+ *       .filter(i -> square(random.doubleAt(2 * i)) + square(random.doubleAt(2 * i + 1)) < 1)
+ *       .count();
+ *
+ * generator(stream) gives a SplittableRandom of its own to a task that wants to draw numbers
+ * one after the other, e.g. one per chunk of ParallelRunner, again reproducible per stream.
+ * SplitMix64 passes BigCrush but is not a cryptographic generator. (The LXM generators of
+ * java.util.random are not available on the JDK this project targets.)
+ */
+public final class RandomSource {
+
+	private static final long GAMMA = 0x9e3779b97f4a7c15L;
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+	private final long seed;
+
+	private RandomSource(long seed) {
+		this.seed = seed;
+	}
+
+	public static RandomSource seeded(long seed) {
+		return new RandomSource(seed);
+	}
+
+	//A source with a seed nobody chose, different every time.
+	public static RandomSource create() {
+		return new RandomSource(mix64(ThreadLocalRandom.current().nextLong() ^ System.nanoTime()));
+	}
+
+	public long seed() {
+		return seed;
+	}
+
+	//The finalizer of SplitMix64 (Stafford's variant 13), as in SplittableRandom.
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	public long longAt(long index) {
+		return mix64(seed + (index + 1) * GAMMA);
+	}
+
+	//Uniform in [0, 1).
+	public double doubleAt(long index) {
+		return (longAt(index) >>> 11) * DOUBLE_UNIT;
+	}
+
+	//Uniform in [origin, bound), as SplittableRandom.nextDouble(origin, bound).
+	public double doubleAt(long index, double origin, double bound) {
+		double r = doubleAt(index) * (bound - origin) + origin;
+		return r >= bound ? java.lang.Math.nextDown(bound) : r;
+	}
+
+	//A generator for one task, seeded from the number at index "stream" of a second sequence.
+	public SplittableRandom generator(long stream) {
+		return new SplittableRandom(mix64(longAt(stream) ^ 0x6a09e667f3bcc909L));
+	}
+
+	public LongStream longs(long size) {
+		checkSize(size);
+		return StreamSupport.longStream(new Longs(0, size), false);
+	}
+
+	public DoubleStream doubles(long size) {
+		return doubles(size, 0, 1);
+	}
+
+	public DoubleStream doubles(long size, double origin, double bound) {
+		checkSize(size);
+		if (!(origin < bound) || bound - origin == Double.POSITIVE_INFINITY) {
+			throw new IllegalArgumentException("bound must be greater than origin: " + origin + ", " + bound);
+		}
+		return StreamSupport.doubleStream(new Doubles(0, size, origin, bound), false);
+	}
+
+	//Fills the array with the numbers at firstIndex, firstIndex + 1, ...
+	public void fill(double[] array, long firstIndex) {
+		for (int i = 0; i < array.length; i++) {
+			array[i] = doubleAt(firstIndex + i);
+		}
+	}
+
+	public void fill(double[] array) {
+		fill(array, 0);
+	}
+
+	//The same numbers as fill(), computed by the common ForkJoinPool.
+	public void parallelFill(double[] array, long firstIndex) {
+		Arrays.parallelSetAll(array, i -> doubleAt(firstIndex + i));
+	}
+
+	public void fill(long[] array, long firstIndex) {
+		for (int i = 0; i < array.length; i++) {
+			array[i] = longAt(firstIndex + i);
+		}
+	}
+
+	private static void checkSize(long size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("size must not be negative, was " + size);
+		}
+	}
+
+	//The indexes [index, end), split in halves.
+	private abstract static class Range {
+
+		long index;
+		final long end;
+
+		Range(long index, long end) {
+			this.index = index;
+			this.end = end;
+		}
+
+		//The first half, taken from this range, or -1 if it is too small to split.
+		long splitAt() {
+			long middle = (index + end) >>> 1;
+			if (middle <= index) {
+				return -1;
+			}
+			long start = index;
+			index = middle;
+			return start;
+		}
+
+		public long estimateSize() {
+			return end - index;
+		}
+
+		public int characteristics() {
+			return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED | Spliterator.NONNULL
+					| Spliterator.IMMUTABLE;
+		}
+	}
+
+	private final class Longs extends Range implements Spliterator.OfLong {
+
+		Longs(long index, long end) {
+			super(index, end);
+		}
+
+		@Override
+		public boolean tryAdvance(LongConsumer action) {
+			if (index >= end) {
+				return false;
+			}
+			action.accept(longAt(index++));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(LongConsumer action) {
+			for (long i = index; i < end; i++) {
+				action.accept(longAt(i));
+			}
+			index = end;
+		}
+
+		@Override
+		public Spliterator.OfLong trySplit() {
+			long start = splitAt();
+			return start < 0 ? null : new Longs(start, index);
+		}
+	}
+
+	private final class Doubles extends Range implements Spliterator.OfDouble {
+
+		private final double origin;
+		private final double bound;
+
+		Doubles(long index, long end, double origin, double bound) {
+			super(index, end);
+			this.origin = origin;
+			this.bound = bound;
+		}
+
+		@Override
+		public boolean tryAdvance(DoubleConsumer action) {
+			if (index >= end) {
+				return false;
+			}
+			action.accept(doubleAt(index++, origin, bound));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(DoubleConsumer action) {
+			for (long i = index; i < end; i++) {
+				action.accept(doubleAt(i, origin, bound));
+			}
+			index = end;
+		}
+
+		@Override
+		public Spliterator.OfDouble trySplit() {
+			long start = splitAt();
+			return start < 0 ? null : new Doubles(start, index, origin, bound);
+		}
+	}
+}
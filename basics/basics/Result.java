@@ -0,0 +1,81 @@
+package basics;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Function;
+
+/*
+ * The outcome of an operation that can fail: either a value or the reason it failed.
+ *
+ * Returning a Result instead of throwing costs one small object (often none, when the JIT sees
+ * it doesn't escape) and no stack walk or unwinding. The caller checks isOk() like it would
+ * check for null, or chains map()/flatMap() and decides at the end:
+ *
+ *   Result<Integer> price = parsePrice(text).map(p -> p * 12);
+ *   if (!price.isOk()) {
+ *       System.out.println(price.failure());
+ *   }
+ *
+ * orElseThrow() turns a failure back into an exception where one is wanted after all.
+ */
+public final class Result<T> {
+
+	private final T value;
+	private final String failure;
+
+	private Result(T value, String failure) {
+		this.value = value;
+		this.failure = failure;
+	}
+
+	public static <T> Result<T> ok(T value) {
+		return new Result<>(value, null);
+	}
+
+	public static <T> Result<T> failure(String reason) {
+		return new Result<>(null, Objects.requireNonNull(reason, "reason"));
+	}
+
+	public boolean isOk() {
+		return failure == null;
+	}
+
+	//The value, NoSuchElementException for a failure.
+	public T get() {
+		if (failure != null) {
+			throw new NoSuchElementException(failure);
+		}
+		return value;
+	}
+
+	//The reason of a failure, null for a value.
+	public String failure() {
+		return failure;
+	}
+
+	public T orElse(T other) {
+		return failure == null ? value : other;
+	}
+
+	public T orElseThrow() throws StacklessException {
+		if (failure != null) {
+			throw new StacklessException(failure);
+		}
+		return value;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <R> Result<R> map(Function<? super T, ? extends R> mapper) {
+		return failure == null ? ok(mapper.apply(value)) : (Result<R>) this;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <R> Result<R> flatMap(Function<? super T, Result<R>> mapper) {
+		return failure == null ? mapper.apply(value) : (Result<R>) this;
+	}
+
+	@Override
+	public String toString() {
+		return failure == null ? "Ok[" + value + "]" : "Failure[" + failure + "]";
+	}
+}
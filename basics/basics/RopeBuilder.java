@@ -0,0 +1,465 @@
+package basics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+/*
+ * A StringBuilder for big texts that are edited in the middle.
+ *
+ * java.lang.StringBuilder keeps one array, so insert(), delete() and replace() shift the whole
+ * tail of the text and cost O(n). This builder keeps the text as a balanced (AVL) tree of
+ * immutable pieces of at most MAX_LEAF chars. An edit splits the tree at the edit offsets and
+ * joins the parts again, which touches O(log n) nodes, and charAt() walks down the tree in
+ * O(log n).
+ *
+ * Appends go to a small buffer first and enter the tree a full piece at a time, so appending
+ * stays cheap. Nodes are never changed once built, which lets subSequence() return a builder
+ * sharing the nodes of this one, and toString() is only computed when asked for and kept until
+ * the next change. reverse(), indexOf() and lastIndexOf() work on the whole text and are O(n).
+ *
+ * Like java.lang.StringBuilder it is not thread safe.
+ */
+public final class RopeBuilder implements CharSequence, Appendable {
+
+	static final int MAX_LEAF = 512;
+
+	private abstract static class Node {
+		final int length;
+		final int height;
+
+		Node(int length, int height) {
+			this.length = length;
+			this.height = height;
+		}
+
+		abstract char charAt(int index);
+
+		//Copies chars [from, to) of this node to dst, starting at offset.
+		abstract void getChars(int from, int to, char[] dst, int offset);
+	}
+
+	private static final class Leaf extends Node {
+		final String text;
+
+		Leaf(String text) {
+			super(text.length(), 0);
+			this.text = text;
+		}
+
+		@Override
+		char charAt(int index) {
+			return text.charAt(index);
+		}
+
+		@Override
+		void getChars(int from, int to, char[] dst, int offset) {
+			text.getChars(from, to, dst, offset);
+		}
+	}
+
+	private static final class Concat extends Node {
+		final Node left;
+		final Node right;
+
+		Concat(Node left, Node right) {
+			super(left.length + right.length, java.lang.Math.max(left.height, right.height) + 1);
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		char charAt(int index) {
+			Node node = this;
+			while (node instanceof Concat) {
+				Concat concat = (Concat) node;
+				if (index < concat.left.length) {
+					node = concat.left;
+				} else {
+					index -= concat.left.length;
+					node = concat.right;
+				}
+			}
+			return node.charAt(index);
+		}
+
+		@Override
+		void getChars(int from, int to, char[] dst, int offset) {
+			if (from < left.length) {
+				left.getChars(from, java.lang.Math.min(to, left.length), dst, offset);
+			}
+			if (to > left.length) {
+				int skipped = java.lang.Math.max(0, from - left.length);
+				right.getChars(skipped, to - left.length, dst, offset + java.lang.Math.max(0, left.length - from));
+			}
+		}
+	}
+
+	private Node root;
+	private final java.lang.StringBuilder tail = new java.lang.StringBuilder();
+	private String cached;
+
+	public RopeBuilder() {
+	}
+
+	public RopeBuilder(CharSequence text) {
+		root = build(text, 0, text.length());
+	}
+
+	private RopeBuilder(Node root) {
+		this.root = root;
+	}
+
+	//A balanced tree of the pieces of text[start, end).
+	private static Node build(CharSequence text, int start, int end) {
+		int length = end - start;
+		if (length == 0) {
+			return null;
+		}
+		if (length <= MAX_LEAF) {
+			return new Leaf(text.subSequence(start, end).toString());
+		}
+		int leaves = (length + MAX_LEAF - 1) / MAX_LEAF;
+		int mid = start + (leaves / 2) * MAX_LEAF;
+		return new Concat(build(text, start, mid), build(text, mid, end));
+	}
+
+	private static int length(Node node) {
+		return node == null ? 0 : node.length;
+	}
+
+	//A node over left and right, whose heights differ by at most 2, rotated back into balance.
+	private static Node balance(Node left, Node right) {
+		if (left.height > right.height + 1) {
+			Concat l = (Concat) left;
+			if (l.left.height >= l.right.height) {
+				return new Concat(l.left, new Concat(l.right, right));
+			}
+			Concat lr = (Concat) l.right;
+			return new Concat(new Concat(l.left, lr.left), new Concat(lr.right, right));
+		}
+		if (right.height > left.height + 1) {
+			Concat r = (Concat) right;
+			if (r.right.height >= r.left.height) {
+				return new Concat(new Concat(left, r.left), r.right);
+			}
+			Concat rl = (Concat) r.left;
+			return new Concat(new Concat(left, rl.left), new Concat(rl.right, r.right));
+		}
+		return new Concat(left, right);
+	}
+
+	//Concatenation of two balanced trees in O(|height difference|). Small neighbouring leaves are merged.
+	private static Node join(Node left, Node right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		if (right instanceof Leaf && left.length > 0) {
+			return joinLeafRight(left, (Leaf) right);
+		}
+		if (left instanceof Leaf && right.length > 0) {
+			return joinLeafLeft((Leaf) left, right);
+		}
+		if (left.height > right.height + 1) {
+			Concat l = (Concat) left;
+			return balance(l.left, join(l.right, right));
+		}
+		if (right.height > left.height + 1) {
+			Concat r = (Concat) right;
+			return balance(join(left, r.left), r.right);
+		}
+		return new Concat(left, right);
+	}
+
+	private static Node joinLeafRight(Node left, Leaf right) {
+		if (left instanceof Leaf) {
+			Leaf l = (Leaf) left;
+			return l.length + right.length <= MAX_LEAF ? new Leaf(l.text.concat(right.text)) : new Concat(l, right);
+		}
+		Concat l = (Concat) left;
+		return balance(l.left, joinLeafRight(l.right, right));
+	}
+
+	private static Node joinLeafLeft(Leaf left, Node right) {
+		if (right instanceof Leaf) {
+			Leaf r = (Leaf) right;
+			return left.length + r.length <= MAX_LEAF ? new Leaf(left.text.concat(r.text)) : new Concat(left, r);
+		}
+		Concat r = (Concat) right;
+		return balance(joinLeafLeft(left, r.left), r.right);
+	}
+
+	//The first "index" chars of node, and the rest.
+	private static Node[] split(Node node, int index) {
+		if (node == null || index <= 0) {
+			return new Node[] {null, node};
+		}
+		if (index >= node.length) {
+			return new Node[] {node, null};
+		}
+		if (node instanceof Leaf) {
+			String text = ((Leaf) node).text;
+			return new Node[] {new Leaf(text.substring(0, index)), new Leaf(text.substring(index))};
+		}
+		Concat concat = (Concat) node;
+		if (index < concat.left.length) {
+			Node[] parts = split(concat.left, index);
+			return new Node[] {parts[0], join(parts[1], concat.right)};
+		}
+		Node[] parts = split(concat.right, index - concat.left.length);
+		return new Node[] {join(concat.left, parts[0]), parts[1]};
+	}
+
+	//Moves the appended text that is still in the buffer into the tree.
+	private Node flushed() {
+		if (tail.length() > 0) {
+			root = join(root, build(tail, 0, tail.length()));
+			tail.setLength(0);
+		}
+		return root;
+	}
+
+	private void changed() {
+		cached = null;
+	}
+
+	@Override
+	public RopeBuilder append(CharSequence text) {
+		tail.append(text);
+		if (tail.length() >= MAX_LEAF) {
+			flushed();
+		}
+		changed();
+		return this;
+	}
+
+	@Override
+	public RopeBuilder append(CharSequence text, int start, int end) {
+		tail.append(text, start, end);
+		if (tail.length() >= MAX_LEAF) {
+			flushed();
+		}
+		changed();
+		return this;
+	}
+
+	public RopeBuilder append(String text) {
+		return append((CharSequence) text);
+	}
+
+	@Override
+	public RopeBuilder append(char c) {
+		tail.append(c);
+		if (tail.length() >= MAX_LEAF) {
+			flushed();
+		}
+		changed();
+		return this;
+	}
+
+	public RopeBuilder append(Object value) {
+		return append(String.valueOf(value));
+	}
+
+	public RopeBuilder append(boolean b) {
+		return append(String.valueOf(b));
+	}
+
+	public RopeBuilder append(int i) {
+		return append(String.valueOf(i));
+	}
+
+	public RopeBuilder append(long l) {
+		return append(String.valueOf(l));
+	}
+
+	public RopeBuilder insert(int offset, CharSequence text) {
+		checkOffset(offset);
+		if (text == null) {
+			text = "null";
+		}
+		Node[] parts = split(flushed(), offset);
+		root = join(join(parts[0], build(text, 0, text.length())), parts[1]);
+		changed();
+		return this;
+	}
+
+	public RopeBuilder insert(int offset, String text) {
+		return insert(offset, (CharSequence) text);
+	}
+
+	public RopeBuilder insert(int offset, char c) {
+		return insert(offset, String.valueOf(c));
+	}
+
+	public RopeBuilder insert(int offset, Object value) {
+		return insert(offset, String.valueOf(value));
+	}
+
+	public RopeBuilder insert(int offset, boolean b) {
+		return insert(offset, String.valueOf(b));
+	}
+
+	public RopeBuilder insert(int offset, int i) {
+		return insert(offset, String.valueOf(i));
+	}
+
+	public RopeBuilder insert(int offset, long l) {
+		return insert(offset, String.valueOf(l));
+	}
+
+	//Like StringBuilder.delete(): "end" past the length means up to the end.
+	public RopeBuilder delete(int start, int end) {
+		int length = length();
+		if (end > length) {
+			end = length;
+		}
+		if (start < 0 || start > end) {
+			throw new StringIndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+		}
+		return replace(start, end, "");
+	}
+
+	public RopeBuilder deleteCharAt(int index) {
+		checkIndex(index);
+		return replace(index, index + 1, "");
+	}
+
+	public RopeBuilder replace(int start, int end, String text) {
+		int length = length();
+		if (end > length) {
+			end = length;
+		}
+		if (start < 0 || start > length || start > end) {
+			throw new StringIndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+		}
+		Node[] head = split(flushed(), start);
+		Node[] rest = split(head[1], end - start);
+		root = join(join(head[0], build(text, 0, text.length())), rest[1]);
+		changed();
+		return this;
+	}
+
+	public void setCharAt(int index, char c) {
+		checkIndex(index);
+		replace(index, index + 1, String.valueOf(c));
+	}
+
+	//Like StringBuilder.setLength(): shorter cuts the text, longer pads it with '\0'.
+	public void setLength(int newLength) {
+		if (newLength < 0) {
+			throw new StringIndexOutOfBoundsException(newLength);
+		}
+		int length = length();
+		if (newLength < length) {
+			root = split(flushed(), newLength)[0];
+			changed();
+		} else {
+			for (int i = length; i < newLength; i++) {
+				append('\0');
+			}
+		}
+	}
+
+	//Reverses like StringBuilder.reverse(), surrogate pairs keep their order. O(n).
+	public RopeBuilder reverse() {
+		String reversed = new java.lang.StringBuilder(toString()).reverse().toString();
+		tail.setLength(0);
+		root = build(reversed, 0, reversed.length());
+		changed();
+		return this;
+	}
+
+	@Override
+	public int length() {
+		return length(root) + tail.length();
+	}
+
+	@Override
+	public char charAt(int index) {
+		checkIndex(index);
+		int treeLength = length(root);
+		return index < treeLength ? root.charAt(index) : tail.charAt(index - treeLength);
+	}
+
+	//A builder sharing the nodes of this one, later changes to either do not affect the other.
+	@Override
+	public RopeBuilder subSequence(int start, int end) {
+		if (start < 0 || start > end || end > length()) {
+			throw new StringIndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+		}
+		Node[] head = split(flushed(), start);
+		return new RopeBuilder(split(head[1], end - start)[0]);
+	}
+
+	public String substring(int start, int end) {
+		return subSequence(start, end).toString();
+	}
+
+	public String substring(int start) {
+		return substring(start, length());
+	}
+
+	//Like StringBuilder.getChars(), in O(log n + number of chars copied).
+	public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+		if (srcBegin < 0 || srcBegin > srcEnd || srcEnd > length()) {
+			throw new StringIndexOutOfBoundsException("begin " + srcBegin + ", end " + srcEnd + ", length " + length());
+		}
+		if (srcBegin < srcEnd) {
+			flushed().getChars(srcBegin, srcEnd, dst, dstBegin);
+		}
+	}
+
+	public int indexOf(String text) {
+		return toString().indexOf(text);
+	}
+
+	public int indexOf(String text, int fromIndex) {
+		return toString().indexOf(text, fromIndex);
+	}
+
+	public int lastIndexOf(String text) {
+		return toString().lastIndexOf(text);
+	}
+
+	public int lastIndexOf(String text, int fromIndex) {
+		return toString().lastIndexOf(text, fromIndex);
+	}
+
+	//Encodes the text without creating a String, see SequenceEncoder. Returns the number of bytes written.
+	public long writeTo(WritableByteChannel channel, SequenceEncoder encoder) throws IOException {
+		return encoder.write(this, channel);
+	}
+
+	public long writeTo(OutputStream out, SequenceEncoder encoder) throws IOException {
+		return encoder.write(this, out);
+	}
+
+	@Override
+	public String toString() {
+		if (cached == null) {
+			Node node = flushed();
+			char[] chars = new char[length(node)];
+			if (node != null) {
+				node.getChars(0, node.length, chars, 0);
+			}
+			cached = new String(chars);
+		}
+		return cached;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= length()) {
+			throw new StringIndexOutOfBoundsException("index " + index + ", length " + length());
+		}
+	}
+
+	private void checkOffset(int offset) {
+		if (offset < 0 || offset > length()) {
+			throw new StringIndexOutOfBoundsException("offset " + offset + ", length " + length());
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package basics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/*
+ * Writes the text of a builder as bytes, without building a String first.
+ *
+ * Printing sb.toString() copies the whole buffer into a new String, and getBytes() then copies
+ * it again into a byte[]. A SequenceEncoder keeps one CharsetEncoder, a small char[] and a
+ * byte buffer, and encodes the text chunk by chunk straight into a ByteBuffer, a channel or an
+ * OutputStream. The array of a PooledStringBuilder is encoded in place, other texts are copied
+ * a chunk at a time with getChars() (RopeBuilder, String, StringBuilder, StringBuffer) or
+ * charAt(). Malformed or unmappable chars are replaced, as String.getBytes() does.
+ *
+ * A SequenceEncoder is reusable but not thread safe: keep one per thread.
+ */
+public final class SequenceEncoder {
+
+	static final int CHUNK = 4096;
+	//Returned by encode() when all chars are encoded but the bytes that end the encoding are not.
+	public static final int FLUSH_PENDING = -1;
+
+	private interface Sink {
+		void accept(ByteBuffer bytes) throws IOException;
+	}
+
+	private final CharsetEncoder encoder;
+	private final ByteBuffer bytes;
+	private final char[] chars = new char[CHUNK];
+	private final CharBuffer chunk = CharBuffer.wrap(chars);
+	private final CharBuffer empty = CharBuffer.allocate(0);
+	//true after an encode() that stopped at a full buffer, until the text is encoded
+	private boolean continuing;
+
+	public SequenceEncoder(Charset charset) {
+		this(charset, 8192);
+	}
+
+	public SequenceEncoder(Charset charset, int bufferSize) {
+		encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		bytes = ByteBuffer.allocate(java.lang.Math.max(bufferSize, 16));
+	}
+
+	public Charset charset() {
+		return encoder.charset();
+	}
+
+	/*
+	 * Encodes text from index "start" into dst until the text ends or dst is full, and returns
+	 * the index of the first char not encoded (text.length() when all of it was). Call again
+	 * with that index and an emptied dst to continue. A call with start 0 starts a new encoding,
+	 * a continuation keeps the state of the encoder: ISO-2022-JP stays in the character set it
+	 * switched to, and UTF-16 writes its byte order mark only once.
+	 *
+	 * A stateful charset like ISO-2022-JP ends its bytes with an escape back to ASCII. When all
+	 * chars fit into dst but those final bytes don't, FLUSH_PENDING is returned, and flush()
+	 * must be called with an emptied dst until it returns true.
+	 */
+	public int encode(CharSequence text, int start, ByteBuffer dst) {
+		try {
+			return encode(text, start, dst, null);
+		} catch (IOException e) {
+			throw new IllegalStateException("no sink, no I/O", e);
+		}
+	}
+
+	//Writes the final bytes left by an encode() that returned FLUSH_PENDING, false if dst was too small again.
+	public boolean flush(ByteBuffer dst) {
+		return !encoder.flush(dst).isOverflow();
+	}
+
+	//Returns the number of bytes written.
+	public long write(CharSequence text, WritableByteChannel channel) throws IOException {
+		return drainAll(text, buffer -> {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		});
+	}
+
+	public long write(CharSequence text, OutputStream out) throws IOException {
+		return drainAll(text, buffer -> out.write(buffer.array(), buffer.arrayOffset() + buffer.position(),
+				buffer.remaining()));
+	}
+
+	private long drainAll(CharSequence text, Sink sink) throws IOException {
+		bytes.clear();
+		long[] written = new long[1];
+		encode(text, 0, bytes, buffer -> {
+			buffer.flip();
+			written[0] += buffer.remaining();
+			sink.accept(buffer);
+			buffer.clear();
+		});
+		bytes.flip();
+		written[0] += bytes.remaining();
+		sink.accept(bytes);
+		bytes.clear();
+		return written[0];
+	}
+
+	/*
+	 * The common loop. Without a sink it stops when "out" is full, with a sink it hands the
+	 * full buffer to the sink and goes on. Chunks never end between the two chars of a
+	 * surrogate pair unless the text does.
+	 */
+	private int encode(CharSequence text, int start, ByteBuffer out, Sink sink) throws IOException {
+		int end = text.length();
+		if (start < 0 || start > end) {
+			throw new IndexOutOfBoundsException("start " + start + ", length " + end);
+		}
+		if (start == 0 || !continuing) {
+			encoder.reset();
+		}
+		continuing = false;
+		int pos = start;
+		while (pos < end) {
+			CharBuffer in;
+			if (text instanceof PooledStringBuilder) {
+				in = CharBuffer.wrap(((PooledStringBuilder) text).array(), pos, end - pos);
+			} else {
+				int count = java.lang.Math.min(CHUNK, end - pos);
+				copy(text, pos, pos + count, chars);
+				if (count > 1 && pos + count < end && Character.isHighSurrogate(chars[count - 1])) {
+					count--;
+				}
+				chunk.limit(count).position(0);
+				in = chunk;
+			}
+			int before = in.position();
+			boolean last = pos + in.remaining() == end;
+			while (true) {
+				CoderResult result = encoder.encode(in, out, last);
+				if (!result.isOverflow()) {
+					break;
+				}
+				if (sink == null) {
+					continuing = true;
+					return pos + in.position() - before;
+				}
+				sink.accept(out);
+			}
+			//A lone high surrogate at the end of a chunk is left in "in" and read again with the next chunk.
+			pos += in.position() - before;
+		}
+		if (start == end) {
+			encoder.encode(empty, out, true);
+		}
+		while (encoder.flush(out).isOverflow()) {
+			if (sink == null) {
+				return FLUSH_PENDING;
+			}
+			sink.accept(out);
+		}
+		return end;
+	}
+
+	private static void copy(CharSequence text, int from, int to, char[] dst) {
+		if (text instanceof String) {
+			((String) text).getChars(from, to, dst, 0);
+		} else if (text instanceof java.lang.StringBuilder) {
+			((java.lang.StringBuilder) text).getChars(from, to, dst, 0);
+		} else if (text instanceof java.lang.StringBuffer) {
+			((java.lang.StringBuffer) text).getChars(from, to, dst, 0);
+		} else if (text instanceof RopeBuilder) {
+			((RopeBuilder) text).getChars(from, to, dst, 0);
+		} else {
+			for (int i = from; i < to; i++) {
+				dst[i - from] = text.charAt(i);
+			}
+		}
+	}
+}
@@ -0,0 +1,475 @@
+package basics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/*
+ * A groupingBy() for inputs bigger than the heap: it keeps one aggregate per group instead of
+ * the group's elements, and writes the groups to temp files when there are too many of them.
+ *
+ * Collectors.groupingBy(Product::getPrice) keeps a List of every element until the stream
+ * ends. Most groupings only want a count, a sum or a minimum per group, and those can be
+ * updated element by element. Only the aggregates of at most maxGroups groups are kept in a
+ * HashMap. When a new group would be one too many, the map is sorted by key and written to a
+ * temp file as a run, and the map starts empty again. A key may be in several runs and in the
+ * map, its aggregates are merged when it is read:
+ *
+ *   try (SpillingGroupAggregator<Product, Integer, Long> countByPrice = SpillingGroupAggregator
+ *           .of(Product::getPrice, Codec.INT, Aggregate.counting())) {
+ *       products.forEach(countByPrice);
+ *       countByPrice.query(23);                     //the count so far, while adding
+ *       countByPrice.forEach((price, count) -> ...);  //all groups, by price
+ *   }
+ *
+ * - query(key) merges the map with each run, reading a run only up to the key, since it is
+ *   sorted
+ * - forEach() merges the map and all runs in one pass in key order, a k-way merge that holds
+ *   one entry per run. Both may be called at any time, also while elements are still added
+ * - more than MAX_RUNS runs are merged into one, so there are never too many open files
+ *
+ * The budget is a number of groups, not of bytes: what a group takes depends on its key and
+ * aggregate. A HashMap entry with a boxed key and a boxed aggregate is on the order of 100
+ * bytes, so the default of 2^20 groups is about 100 MB, withMaxGroups() changes it.
+ *
+ * Keys and aggregates are written with a Codec. Keys need an order to sort the runs, their
+ * natural order or a Comparator that is consistent with equals(). All methods are
+ * synchronized, so threads may add and query concurrently. close() deletes the runs.
+ */
+public final class SpillingGroupAggregator<T, K, A> implements Consumer<T>, AutoCloseable {
+
+	public static final int DEFAULT_MAX_GROUPS = 1 << 20;
+	static final int MAX_RUNS = 64;
+
+	//Writes values of one type to a run and reads them back.
+	public interface Codec<V> {
+
+		void write(DataOutput out, V value) throws IOException;
+
+		V read(DataInput in) throws IOException;
+
+		Codec<Integer> INT = codec(DataOutput::writeInt, DataInput::readInt);
+		Codec<Long> LONG = codec(DataOutput::writeLong, DataInput::readLong);
+		Codec<Double> DOUBLE = codec(DataOutput::writeDouble, DataInput::readDouble);
+		//Length and chars, writeUTF() would be limited to 64 KB.
+		Codec<String> STRING = codec((out, value) -> {
+			out.writeInt(value.length());
+			out.writeChars(value);
+		}, in -> {
+			char[] chars = new char[in.readInt()];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = in.readChar();
+			}
+			return new String(chars);
+		});
+
+		static <V> Codec<V> codec(Writer<V> writer, Reader<V> reader) {
+			return new Codec<V>() {
+				@Override
+				public void write(DataOutput out, V value) throws IOException {
+					writer.write(out, value);
+				}
+
+				@Override
+				public V read(DataInput in) throws IOException {
+					return reader.read(in);
+				}
+			};
+		}
+
+		interface Writer<V> {
+			void write(DataOutput out, V value) throws IOException;
+		}
+
+		interface Reader<V> {
+			V read(DataInput in) throws IOException;
+		}
+	}
+
+	/*
+	 * How the elements of a group become its aggregate: "first" makes it from the first element,
+	 * "add" adds another one, "merge" combines the aggregates of two parts of the group, and
+	 * "codec" writes it to a run.
+	 */
+	public static final class Aggregate<T, A> {
+
+		final Function<? super T, ? extends A> first;
+		final BiFunction<A, ? super T, A> add;
+		final BinaryOperator<A> merge;
+		final Codec<A> codec;
+
+		private Aggregate(Function<? super T, ? extends A> first, BiFunction<A, ? super T, A> add, BinaryOperator<A> merge,
+				Codec<A> codec) {
+			this.first = Objects.requireNonNull(first, "first");
+			this.add = Objects.requireNonNull(add, "add");
+			this.merge = Objects.requireNonNull(merge, "merge");
+			this.codec = Objects.requireNonNull(codec, "codec");
+		}
+
+		public static <T, A> Aggregate<T, A> of(Function<? super T, ? extends A> first, BiFunction<A, ? super T, A> add,
+				BinaryOperator<A> merge, Codec<A> codec) {
+			return new Aggregate<>(first, add, merge, codec);
+		}
+
+		public static <T> Aggregate<T, Long> counting() {
+			return new Aggregate<>(element -> 1L, (count, element) -> count + 1, Long::sum, Codec.LONG);
+		}
+
+		public static <T> Aggregate<T, Long> summingLong(ToLongFunction<? super T> value) {
+			return new Aggregate<>(element -> value.applyAsLong(element),
+					(sum, element) -> sum + value.applyAsLong(element), Long::sum, Codec.LONG);
+		}
+
+		public static <T> Aggregate<T, Long> maxLong(ToLongFunction<? super T> value) {
+			return new Aggregate<>(element -> value.applyAsLong(element),
+					(max, element) -> java.lang.Math.max(max, value.applyAsLong(element)), java.lang.Math::max, Codec.LONG);
+		}
+	}
+
+	private final Function<? super T, ? extends K> classifier;
+	private final Comparator<? super K> order;
+	private final Codec<K> keys;
+	private final Aggregate<T, A> aggregate;
+	private final int maxGroups;
+	private final Path directory;
+
+	private Map<K, A> groups = new HashMap<>();
+	private final List<Path> runs = new ArrayList<>();
+	private long spilledGroups;
+	private boolean closed;
+
+	private SpillingGroupAggregator(Function<? super T, ? extends K> classifier, Comparator<? super K> order,
+			Codec<K> keys, Aggregate<T, A> aggregate, int maxGroups, Path directory) {
+		if (maxGroups < 1) {
+			throw new IllegalArgumentException("maxGroups must be at least 1, was " + maxGroups);
+		}
+		this.classifier = Objects.requireNonNull(classifier, "classifier");
+		this.order = Objects.requireNonNull(order, "order");
+		this.keys = Objects.requireNonNull(keys, "keys");
+		this.aggregate = Objects.requireNonNull(aggregate, "aggregate");
+		this.maxGroups = maxGroups;
+		this.directory = directory;
+	}
+
+	public static <T, K extends Comparable<? super K>, A> SpillingGroupAggregator<T, K, A> of(
+			Function<? super T, ? extends K> classifier, Codec<K> keys, Aggregate<T, A> aggregate) {
+		return new SpillingGroupAggregator<>(classifier, Comparator.<K> naturalOrder(), keys, aggregate,
+				DEFAULT_MAX_GROUPS, null);
+	}
+
+	public static <T, K, A> SpillingGroupAggregator<T, K, A> of(Function<? super T, ? extends K> classifier,
+			Comparator<? super K> order, Codec<K> keys, Aggregate<T, A> aggregate) {
+		return new SpillingGroupAggregator<>(classifier, order, keys, aggregate, DEFAULT_MAX_GROUPS, null);
+	}
+
+	//A new, empty aggregator like this one that keeps at most maxGroups groups in memory.
+	public SpillingGroupAggregator<T, K, A> withMaxGroups(int maxGroups) {
+		return new SpillingGroupAggregator<>(classifier, order, keys, aggregate, maxGroups, directory);
+	}
+
+	//A new, empty aggregator like this one that writes its runs to "directory" instead of the default temp directory.
+	public SpillingGroupAggregator<T, K, A> spillingTo(Path directory) {
+		return new SpillingGroupAggregator<>(classifier, order, keys, aggregate, maxGroups,
+				Objects.requireNonNull(directory, "directory"));
+	}
+
+	@Override
+	public synchronized void accept(T element) {
+		checkOpen();
+		K key = classifier.apply(element);
+		A current = groups.get(key);
+		if (current != null) {
+			groups.put(key, aggregate.add.apply(current, element));
+			return;
+		}
+		if (groups.size() >= maxGroups) {
+			spill();
+		}
+		groups.put(key, aggregate.first.apply(element));
+	}
+
+	//The aggregate of the key's group from the elements added so far.
+	public synchronized Optional<A> query(K key) {
+		checkOpen();
+		A result = null;
+		for (Path run : runs) {
+			try (RunReader reader = new RunReader(run)) {
+				boolean found = reader.next();
+				while (found && order.compare(reader.key, key) < 0) {
+					found = reader.next();
+				}
+				if (found && order.compare(reader.key, key) == 0) {
+					result = result == null ? reader.value : aggregate.merge.apply(result, reader.value);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		A inMemory = groups.get(key);
+		if (inMemory != null) {
+			result = result == null ? inMemory : aggregate.merge.apply(result, inMemory);
+		}
+		return Optional.ofNullable(result);
+	}
+
+	//Passes every group with its aggregate so far to the action, in key order.
+	public synchronized void forEach(BiConsumer<? super K, ? super A> action) {
+		checkOpen();
+		try {
+			merge(runs, sortedGroups(), action::accept);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	//All groups in key order, which must fit into memory.
+	public Map<K, A> toMap() {
+		Map<K, A> map = new LinkedHashMap<>();
+		forEach(map::put);
+		return map;
+	}
+
+	//The number of runs on disk.
+	public synchronized int runs() {
+		return runs.size();
+	}
+
+	//The number of groups written to runs so far, a key written several times counted each time.
+	public synchronized long spilledGroups() {
+		return spilledGroups;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		groups = new HashMap<>();
+		IOException failure = null;
+		for (Path run : runs) {
+			try {
+				Files.deleteIfExists(run);
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		runs.clear();
+		if (failure != null) {
+			throw new UncheckedIOException(failure);
+		}
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("aggregator is closed");
+		}
+	}
+
+	private List<Map.Entry<K, A>> sortedGroups() {
+		List<Map.Entry<K, A>> sorted = new ArrayList<>(groups.entrySet());
+		sorted.sort(Map.Entry.comparingByKey(order));
+		return sorted;
+	}
+
+	private void spill() {
+		try {
+			List<Map.Entry<K, A>> sorted = sortedGroups();
+			Path run = newRun();
+			try (DataOutputStream out = open(run)) {
+				for (Map.Entry<K, A> group : sorted) {
+					keys.write(out, group.getKey());
+					aggregate.codec.write(out, group.getValue());
+				}
+			} catch (IOException | RuntimeException e) {
+				deleteAfterFailure(run, e);
+				throw e;
+			}
+			runs.add(run);
+			spilledGroups += sorted.size();
+			groups = new HashMap<>();
+			if (runs.size() > MAX_RUNS) {
+				compact();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	//Merges all runs into one.
+	private void compact() throws IOException {
+		Path merged = newRun();
+		try (DataOutputStream out = open(merged)) {
+			merge(runs, new ArrayList<>(), (key, value) -> {
+				keys.write(out, key);
+				aggregate.codec.write(out, value);
+			});
+		} catch (IOException | RuntimeException e) {
+			deleteAfterFailure(merged, e);
+			throw e;
+		}
+		for (Path run : runs) {
+			Files.deleteIfExists(run);
+		}
+		runs.clear();
+		runs.add(merged);
+	}
+
+	//A run that is not in "runs" yet would never be deleted by close().
+	private static void deleteAfterFailure(Path run, Exception failure) {
+		try {
+			Files.deleteIfExists(run);
+		} catch (IOException e) {
+			failure.addSuppressed(e);
+		}
+	}
+
+	private Path newRun() throws IOException {
+		return directory == null ? Files.createTempFile("groups-", ".run") : Files.createTempFile(directory, "groups-", ".run");
+	}
+
+	private static DataOutputStream open(Path run) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16));
+	}
+
+	private interface Sink<K, A> {
+		void accept(K key, A value) throws IOException;
+	}
+
+	/*
+	 * The k-way merge: a queue holds the next entry of every run and of the sorted groups, the
+	 * smallest key is taken from it together with all entries of the same key, merged in the
+	 * order of the runs and the memory last.
+	 */
+	private void merge(List<Path> runs, List<Map.Entry<K, A>> memory, Sink<K, A> sink) throws IOException {
+		List<Source> sources = new ArrayList<>();
+		try {
+			for (Path run : runs) {
+				sources.add(new Source(sources.size(), new RunReader(run)));
+			}
+			sources.add(new Source(sources.size(), memory.iterator()));
+			PriorityQueue<Source> queue = new PriorityQueue<>((a, b) -> {
+				int byKey = order.compare(a.key, b.key);
+				return byKey != 0 ? byKey : Integer.compare(a.index, b.index);
+			});
+			for (Source source : sources) {
+				if (source.next()) {
+					queue.add(source);
+				}
+			}
+			while (!queue.isEmpty()) {
+				Source smallest = queue.poll();
+				K key = smallest.key;
+				A value = smallest.value;
+				if (smallest.next()) {
+					queue.add(smallest);
+				}
+				while (!queue.isEmpty() && order.compare(queue.peek().key, key) == 0) {
+					Source same = queue.poll();
+					value = aggregate.merge.apply(value, same.value);
+					if (same.next()) {
+						queue.add(same);
+					}
+				}
+				sink.accept(key, value);
+			}
+		} finally {
+			for (Source source : sources) {
+				if (source.reader != null) {
+					source.reader.close();
+				}
+			}
+		}
+	}
+
+	//The next entry of a run or of the sorted groups in memory.
+	private final class Source {
+
+		final int index;
+		final RunReader reader;
+		final Iterator<Map.Entry<K, A>> entries;
+		K key;
+		A value;
+
+		Source(int index, RunReader reader) {
+			this.index = index;
+			this.reader = reader;
+			this.entries = null;
+		}
+
+		Source(int index, Iterator<Map.Entry<K, A>> entries) {
+			this.index = index;
+			this.reader = null;
+			this.entries = entries;
+		}
+
+		boolean next() throws IOException {
+			if (reader != null) {
+				boolean found = reader.next();
+				key = reader.key;
+				value = reader.value;
+				return found;
+			}
+			if (!entries.hasNext()) {
+				return false;
+			}
+			Map.Entry<K, A> entry = entries.next();
+			key = entry.getKey();
+			value = entry.getValue();
+			return true;
+		}
+	}
+
+	//Reads a run entry by entry. key is null after the last one.
+	private final class RunReader implements AutoCloseable {
+
+		private final DataInputStream in;
+		K key;
+		A value;
+
+		RunReader(Path run) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+		}
+
+		boolean next() throws IOException {
+			in.mark(1);
+			if (in.read() < 0) {
+				key = null;
+				value = null;
+				return false;
+			}
+			in.reset();
+			key = keys.read(in);
+			value = aggregate.codec.read(in);
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package basics;
+
+/*
+ * A checked exception that does not record a stack trace.
+ *
+ * new Exception() walks the whole stack in fillInStackTrace() to record where it was created,
+ * and that walk costs far more than the allocation or the throw itself. An exception used for
+ * control flow, thrown and caught millions of times in a validation loop, never looks at that
+ * trace. This one is created with writableStackTrace and enableSuppression off, so nothing
+ * is recorded and getStackTrace() is empty.
+ *
+ * Because it can't change after construction (no stack trace, no suppressed exceptions, the
+ * cause is fixed), one instance can be kept in a static final field and thrown again and again
+ * by any number of threads, see Exceptions.MUST_THROW. Subclass it for a family of such
+ * exceptions, e.g. one per kind of validation failure.
+ */
+public class StacklessException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	public StacklessException(String message) {
+		super(message, null, false, false);
+	}
+
+	public StacklessException(String message, Throwable cause) {
+		super(message, cause, false, false);
+	}
+}
@@ -1,14 +1,17 @@
 package basics;
 
+import java.util.List;
+
 public class StaticGlobalVariables {
 
-	static int daysInYear = 365;
-	static String[] months = {"Jan","Feb","Mar","April","May","June","July","Aug","Sep","Oct","Nov","Dec"};
+	static final int daysInYear = CalendarTables.DAYS_IN_COMMON_YEAR;
+	//final and unmodifiable, so no code can replace or change the names under everyone else.
+	static final List<String> months = CalendarTables.monthNames();
 	
 	public static void main(String[] args) {
 		// TODO Auto-generated method stub
 		for(int i = 0 ;i < 12;i++) {
-			System.out.println(months[i]);
+			System.out.println(months.get(i));
 		}
 	}
 
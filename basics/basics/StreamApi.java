@@ -38,6 +38,13 @@ public class StreamApi {
 		//The first element of the resulting stream is the first parameter of the iterate() method. 
 		//When creating every following element, the specified function is applied to the 
 		//previous element. In the example above the second element will be 42.
+
+		//Such a stream is boxed, computes one element after the other from the seed, and does it again for
+		//every new stream. LongSequence computes an arithmetic or affine sequence at any index directly, so
+		//its streams split in halves for parallel work, and LazySequence keeps what it has computed:
+
+		LongStream sequenceStream = LongSequence.arithmetic(40, 2).stream(20);
+		LazySequence<String> generatedOnce = LazySequence.generate(() -> "element");
 		
 		//Java 8 offers the possibility to create streams out of three primitive types: int, long and double.
 		//As Stream<T> is a generic interface, and there is no way to use primitives as a type 
@@ -57,6 +64,12 @@ public class StreamApi {
 
 		Random random = new Random();
 		DoubleStream doubleStream = random.doubles(3);
+
+		//All numbers of a Random update one shared seed, so a parallel stream of them mostly waits.
+		//RandomSource computes the number at each index from the seed alone, so it splits like a range
+		//and gives the same numbers for a seed however it is split:
+
+		DoubleStream parallelDoubles = RandomSource.seeded(42).doubles(1_000_000).parallel();
 		
 		//We can also use String as a source for creating a stream with the help of the chars() 
 		//method of the String class. Since there is no interface for CharStream in JDK, we use the 
@@ -64,10 +77,22 @@ public class StreamApi {
 
 		IntStream streamOfChars = "abc".chars();
 
+		//Every char then goes through the lambdas of each stage. For scanning and cleaning text, TextScan
+		//runs plain loops: over a CharSequence with a CharClass bit mask, over a byte[] eight bytes at a time:
+
+		int letters = TextScan.count("abc, def", CharClass.LETTER);
+		String cleaned = TextScan.collapse("  a \t b  ", CharClass.WHITESPACE, ' '); //"a b"
+
 		//The following example breaks a String into sub-strings according to specified RegEx:
 
 		Stream<String> streamOfString =
 		  Pattern.compile(", ").splitAsStream("a, b, c");
+
+		//splitAsStream() finds one match after the other, so a parallel stream over a huge text hardly splits.
+		//Tokenizer cuts the text at delimiters near the middle, caches the compiled pattern, searches
+		//literal delimiters without a Matcher, and returns CharSlice views instead of substrings:
+
+		Stream<CharSequence> tokens = Tokenizer.of(", ").tokens("a, b, c").parallel();
 		
 		//Furthermore, Java NIO class Files allows us to generate a Stream<String> of a text file 
 		//through the lines() method. Every line of the text becomes an element of the stream:
@@ -78,7 +103,15 @@ public class StreamApi {
 		Files.lines(path, Charset.forName("UTF-8"));
 
 		//The Charset can be specified as an argument of the lines() method.
-		
+
+		//Files.lines() decodes every line into a new String and splits badly in parallel. For big files
+		//MappedLines maps the file instead. Its lines are CharSequence views over the mapping, so a String is
+		//only created on toString(), and the file is split on line boundaries for parallel streams:
+
+		Stream<CharSequence> mappedLines = MappedLines.lines(path);
+		long errorLines = MappedLines.lines(path, StandardCharsets.UTF_8).parallel()
+		  .filter(line -> line.length() > 0 && line.charAt(0) == 'E').count();
+
 		//REFERENCING A STREAM//
 		
 		//We can instantiate a stream, and have an accessible reference to it, as long as only intermediate 
@@ -104,6 +137,17 @@ public class StreamApi {
 				.collect(Collectors.toList());
 		Optional<String> anyElement = elements.stream().findAny();
 		Optional<String> firstElement = elements.stream().findFirst();
+
+		//Collecting into a List keeps every element in memory. A PlannedStream describes the pipeline
+		//over a Supplier of the source, so every terminal operation starts a fresh stream:
+
+		PlannedStream<String> withB = PlannedStream.of(() -> Stream.of("a", "b", "c"))
+				.filter(element -> element.contains("b"));
+		Optional<String> anyElement = withB.findAny();
+		Optional<String> firstElement = withB.findFirst();
+
+		//For an expensive source, memoized() runs the pipeline once and keeps its elements for the next runs:
+		PlannedStream<String> cached = withB.memoized();
 		
 		//STREAM PIPELINE
 		
@@ -163,6 +207,16 @@ public class StreamApi {
 		//once. This is because the pipeline executes vertically. In our example, the first element 
 		//of the stream didn’t satisfy the filter’s predicate. Then we invoked the filter() method for the second element, which passed the filter. Without calling the filter() for the third element, we went down through the pipeline to the map() method.
 		//The findFirst() operation satisfies by just one element. So in this particular example, the lazy invocation allowed us to avoid two method calls, one for the filter() and one for the map().
+
+		//Instead of a counter field and log lines, PipelineMetrics wraps the function of each stage and
+		//records its calls, elements in and out, nanoseconds and (withAllocation()) allocated bytes:
+
+		PipelineMetrics metrics = PipelineMetrics.withAllocation();
+		Optional<String> stream = list.stream()
+				.filter(metrics.filter("filter", element -> element.contains("2")))
+				.map(metrics.map("map", element -> element.toUpperCase()))
+				.findFirst();
+		System.out.print(metrics.report()); //filter: 2 calls, 2 in, 1 out; map: 1 call
 		
 		//ORDER OF EXECUTION
 		
@@ -188,6 +242,15 @@ public class StreamApi {
 		//This brings us to the following rule: intermediate operations which reduce the size 
 		//of the stream should be placed before operations which are applying to each element. 
 		//So we need to keep methods such as skip(), filter(), and distinct() at the top of our stream pipeline.
+
+		//PlannedStream applies this rule itself. It records the operations as a plan and moves skip()
+		//and limit() before a map declared pure, and a pure filter before sorted() and distinct():
+
+		PlannedStream<String> planned = PlannedStream.of(list).pureMap(element -> element.substring(0, 3)).skip(2);
+		long size = planned.stream().count();
+		System.out.println(planned.explain());
+		//as written: source.pureMap.skip(2)
+		//executed:   source.skip(2).pureMap
 			
 			//STREAM REDUCTION
 			
@@ -238,6 +301,13 @@ public class StreamApi {
 				//three times by adding every element of the stream to identity. These actions are 
 				//being done in parallel. As a result, they have (10 + 1 = 11; 10 + 2 = 12; 10 + 3 = 13;). 
 				//Now combiner can merge these three results. It needs two iterations for that (12 + 13 = 25; 25 + 11 = 36).
+
+				//So the identity of a parallel reduce must really be neutral, and the accumulator associative,
+				//or the result depends on the splits. ParallelReduce checks both on a sample before it runs and
+				//throws an IllegalArgumentException for the example above, and reduces int, long and double
+				//arrays without boxing, in a balanced tree of per-thread accumulators:
+
+				int reducedChecked = ParallelReduce.common().reduce(new int[] { 1, 2, 3 }, 0, Integer::sum);
 					
 				//collect() Method//
 					
@@ -254,6 +324,13 @@ List<Product> productList = Arrays.asList(new Product(23, "potatoes"),
 List<String> collectorCollection = 
   productList.stream().map(Product::getName).collect(Collectors.toList());
 
+//Each name in such a list is a reference to a String of its own. When the same few names repeat over
+//millions of records, a StringDictionary keeps every distinct name once, off the heap, and a record
+//can keep its int id instead:
+
+StringDictionary names = new StringDictionary();
+int[] nameIds = productList.stream().mapToInt(product -> names.id(product.getName())).toArray();
+
 //Reducing to String:
 
 String listToString = productList.stream().map(Product::getName)
@@ -289,11 +366,43 @@ Map<Integer, List<Product>> collectorMapOfLists = productList.stream()
 
 //In the example above, the stream was reduced to the Map, which groups all products by their price.
 
+//The map holds every element until the stream ends. When only an aggregate per group is needed
+//and there are more groups than the heap can hold, SpillingGroupAggregator keeps the aggregates
+//of a bounded number of groups and writes sorted runs of them to temp files, to be merged later:
+
+try (SpillingGroupAggregator<Product, Integer, Long> countByPrice = SpillingGroupAggregator
+  .of(Product::getPrice, SpillingGroupAggregator.Codec.INT, SpillingGroupAggregator.Aggregate.counting())) {
+  productList.forEach(countByPrice);
+  Optional<Long> pricedAt23 = countByPrice.query(23);
+}
+
 //Dividing stream’s elements into groups according to some predicate:
 
 Map<Boolean, List<Product>> mapPartioned = productList.stream()
   .collect(Collectors.partitioningBy(element -> element.getPrice() > 15));
 
+//With tens of millions of rows, one Product object per row and the boxed Map<Integer, List<Product>> cost a lot of heap.
+//ProductTable keeps the prices in an int[] and the names dictionary encoded, and runs the same aggregations on those columns:
+
+ProductTable productTable = ProductTable.of(productList);
+long tableSum = productTable.sumPrice();
+double tableAverage = productTable.averagePrice();
+IntSummaryStatistics tableStatistics = productTable.priceStatistics();
+ProductTable.PriceGroups groupsByPrice = productTable.groupByPrice();
+ProductTable.Partition partitionByPrice = productTable.partitionByPrice(price -> price > 15);
+
+//Each collect() above reads the whole list again. MultiCollector runs any set of collectors in one pass
+//(in parallel too) and gives the results back by typed keys:
+
+MultiCollector.Key<Double> averageKey = MultiCollector.key("average");
+MultiCollector.Key<IntSummaryStatistics> statisticsKey = MultiCollector.key("statistics");
+MultiCollector.Key<Map<Integer, List<Product>>> byPriceKey = MultiCollector.key("byPrice");
+MultiCollector.Results results = productList.parallelStream().collect(MultiCollector.<Product>of()
+  .with(averageKey, Collectors.averagingInt(Product::getPrice))
+  .with(statisticsKey, Collectors.summarizingInt(Product::getPrice))
+  .with(byPriceKey, Collectors.groupingBy(Product::getPrice)));
+double onePassAverage = results.get(averageKey);
+
 //Pushing the collector to perform additional transformation:
 
 Set<Product> unmodifiableSet = productList.stream()
@@ -318,6 +427,17 @@ LinkedList<Product> linkedListOfPersons =
 
 //In this example, an instance of the Collector got reduced to the LinkedList<Persone>.
 
+//In parallel mode this collector is slow: every element gets its own node, and every merge copies the second list with addAll().
+//ParallelCollectors has combiners which don't copy the elements. A ChunkedList stores its elements in array chunks and links two
+//partial lists in O(1), toArray() copies the elements only once, and groupingBy() merges the groups of two partial maps by linking them:
+
+ChunkedList<Product> chunkedListOfProducts =
+  productList.parallelStream().collect(ParallelCollectors.toChunkedList());
+Product[] arrayOfProducts =
+  productList.parallelStream().collect(ParallelCollectors.toArray(Product[]::new, productList.size()));
+Map<Integer, ChunkedList<Product>> productsByPrice =
+  productList.parallelStream().collect(ParallelCollectors.groupingBy(Product::getPrice));
+
 	//PARALLEL STREAMS//
 //Before Java 8, parallelization was complex. The emergence of the ExecutorService and the ForkJoin simplified a developer’s life a little bit, but it was still worth remembering how to create a specific executor, how to run it, and so on. Java 8 introduced a way of accomplishing parallelism in a functional style.
 
@@ -336,6 +456,20 @@ boolean isParallel = intStreamParallel.isParallel();
 
 //Under the hood, Stream API automatically uses the ForkJoin framework to execute operations in parallel. By default, the common thread pool will be used and there is no way (at least for now) to assign some custom thread pool to it. This can be overcome by using a custom set of parallel collectors.
 
+//A parallel stream forks its tasks into the pool of the thread which runs the terminal operation. ParallelRunner uses this to
+//run a pipeline on a pool of our own, so one heavy job doesn't starve every other parallel stream of the JVM:
+
+try (ParallelRunner runner = ParallelRunner.withParallelism(4)) {
+  boolean bigPriceOnOwnPool = runner.call(() -> productList.parallelStream()
+    .map(product -> product.getPrice() * 12)
+    .anyMatch(price -> price > 200));
+}
+
+//With any other Executor, ParallelRunner splits the list into chunks itself (map(), anyMatch() and reduce()):
+
+ParallelRunner executorRunner = ParallelRunner.on(Executors.newFixedThreadPool(2), 2);
+int totalPrice = executorRunner.reduce(productList, 0, (sum, product) -> sum + product.getPrice(), Integer::sum);
+
 //When using streams in parallel mode, avoid blocking operations. It is also best to use parallel mode when tasks need a similar amount of time to execute. If one task lasts much longer than the other, it can slow down the complete app’s workflow.
 
 //The stream in parallel mode can be converted back to the sequential mode by using the sequential() method:
@@ -0,0 +1,217 @@
+package basics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * A string many threads append to at the same time, as an alternative to sharing one
+ * java.lang.StringBuffer, which takes the same lock for every append.
+ *
+ * Every thread appends to a segment of its own. The segment is only locked by its own thread,
+ * so the lock is never contended while appending. toString() stitches the segments together:
+ *
+ * unordered() - the text of every thread stays in one block, the blocks follow each other in
+ *               the order the threads first appended. Appends need no shared state at all.
+ * ordered()   - the result has the appends in the order they happened, as if all threads had
+ *               appended to one StringBuffer. Every append takes a number from a shared
+ *               counter, which costs one atomic increment.
+ *
+ * toString() sees every append that finished before it was called, so call it once the
+ * appending threads are done (after join() or at the end of a parallel stream).
+ *
+ * The accumulator finds the segment of a thread in a map of its own rather than a ThreadLocal:
+ * the value of a ThreadLocal lives as long as its thread, so every pool thread that ever
+ * appended would keep its segment after the accumulator is gone. toString() also empties the
+ * map, a thread that appends after it gets a new segment behind the others.
+ */
+public final class StringAccumulator implements Appendable {
+
+	private static final class Segment {
+		final java.lang.StringBuilder text = new java.lang.StringBuilder();
+		//ordered mode only: the number and the end offset in "text" of every append
+		long[] sequences;
+		int[] ends;
+		int count;
+	}
+
+	private final boolean ordered;
+	private final AtomicLong sequence = new AtomicLong();
+	private final List<Segment> segments = new CopyOnWriteArrayList<>();
+	private final Map<Thread, Segment> byThread = new ConcurrentHashMap<>();
+
+	private StringAccumulator(boolean ordered) {
+		this.ordered = ordered;
+	}
+
+	public static StringAccumulator ordered() {
+		return new StringAccumulator(true);
+	}
+
+	public static StringAccumulator unordered() {
+		return new StringAccumulator(false);
+	}
+
+	private Segment segment() {
+		Segment segment = byThread.get(Thread.currentThread());
+		return segment != null ? segment : byThread.computeIfAbsent(Thread.currentThread(), thread -> newSegment());
+	}
+
+	private Segment newSegment() {
+		Segment segment = new Segment();
+		if (ordered) {
+			segment.sequences = new long[16];
+			segment.ends = new int[16];
+		}
+		segments.add(segment);
+		return segment;
+	}
+
+	public boolean isOrdered() {
+		return ordered;
+	}
+
+	@Override
+	public StringAccumulator append(CharSequence text) {
+		Segment segment = segment();
+		synchronized (segment) {
+			segment.text.append(text);
+			record(segment);
+		}
+		return this;
+	}
+
+	@Override
+	public StringAccumulator append(CharSequence text, int start, int end) {
+		Segment segment = segment();
+		synchronized (segment) {
+			segment.text.append(text, start, end);
+			record(segment);
+		}
+		return this;
+	}
+
+	@Override
+	public StringAccumulator append(char c) {
+		Segment segment = segment();
+		synchronized (segment) {
+			segment.text.append(c);
+			record(segment);
+		}
+		return this;
+	}
+
+	public StringAccumulator append(String text) {
+		return append((CharSequence) text);
+	}
+
+	public StringAccumulator append(Object value) {
+		return append(String.valueOf(value));
+	}
+
+	public StringAccumulator append(int value) {
+		Segment segment = segment();
+		synchronized (segment) {
+			segment.text.append(value);
+			record(segment);
+		}
+		return this;
+	}
+
+	public StringAccumulator append(long value) {
+		Segment segment = segment();
+		synchronized (segment) {
+			segment.text.append(value);
+			record(segment);
+		}
+		return this;
+	}
+
+	private void record(Segment segment) {
+		if (!ordered) {
+			return;
+		}
+		if (segment.count == segment.sequences.length) {
+			segment.sequences = Arrays.copyOf(segment.sequences, segment.count * 2);
+			segment.ends = Arrays.copyOf(segment.ends, segment.count * 2);
+		}
+		segment.sequences[segment.count] = sequence.getAndIncrement();
+		segment.ends[segment.count] = segment.text.length();
+		segment.count++;
+	}
+
+	public int length() {
+		int length = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				length += segment.text.length();
+			}
+		}
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		byThread.clear();
+		return ordered ? stitchInOrder() : stitchBlocks();
+	}
+
+	private String stitchBlocks() {
+		java.lang.StringBuilder result = new java.lang.StringBuilder(length());
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				result.append(segment.text);
+			}
+		}
+		return result.toString();
+	}
+
+	/*
+	 * Every append has a unique number below sequence.get(), so the pieces can be put straight
+	 * into their slot of a table indexed by that number, no sorting is needed. A slot stays
+	 * empty if its append had taken its number but not finished when the table was built.
+	 */
+	private String stitchInOrder() {
+		Segment[] snapshot = segments.toArray(new Segment[0]);
+		int slots = (int) sequence.get();
+		int[] owners = new int[slots];
+		int[] ends = new int[slots];
+		Arrays.fill(owners, -1);
+		String[] texts = new String[snapshot.length];
+		for (int s = 0; s < snapshot.length; s++) {
+			Segment segment = snapshot[s];
+			synchronized (segment) {
+				texts[s] = segment.text.toString();
+				for (int i = 0; i < segment.count; i++) {
+					long slot = segment.sequences[i];
+					if (slot < slots) {
+						owners[(int) slot] = s;
+						ends[(int) slot] = segment.ends[i];
+					}
+				}
+			}
+		}
+		//The previous piece of a segment ends where the next one starts.
+		int[] starts = new int[snapshot.length];
+		int length = 0;
+		for (int slot = 0; slot < slots; slot++) {
+			if (owners[slot] >= 0) {
+				length += ends[slot] - starts[owners[slot]];
+				starts[owners[slot]] = ends[slot];
+			}
+		}
+		Arrays.fill(starts, 0);
+		java.lang.StringBuilder result = new java.lang.StringBuilder(length);
+		for (int slot = 0; slot < slots; slot++) {
+			int owner = owners[slot];
+			if (owner >= 0) {
+				result.append(texts[owner], starts[owner], ends[slot]);
+				starts[owner] = ends[slot];
+			}
+		}
+		return result.toString();
+	}
+}
@@ -10,12 +10,16 @@ public class StringBuffer {
 		//string buffer and string builder class in java used to create mutable string 
 		//StringBuffer thread safe
 		//StringBuilder not threads safe
+		//StringBuffer is thread safe because every method takes the same lock. When many threads build
+		//one shared text, StringAccumulator gives each thread its own segment and joins them in toString()
 		 StringBuffer sb = new StringBuffer();
 	        sb.append("Hello");
 	        sb.append(" ");
 	        sb.append("world");
 	        String message = sb.toString();
 	        System.out.println(message);
+	        //toString() copies the buffer into a String and printing copies it again into bytes.
+	        //For big texts, SequenceEncoder writes a builder straight to a stream or channel
 	        
 	    /*
 	     * append() method: The append() method concatenates the given argument with this string.
@@ -32,6 +32,11 @@ public class StringBuilder {
         // print string
         System.out.println("String2 capacity = "
                            + str2.capacity());
+
+        // the capacity always grows by (oldcapacity*2)+2 and the outgrown
+        // arrays become garbage. PooledStringBuilder takes its growth
+        // rule from a GrowthPolicy and its arrays from a CharArrayPool,
+        // and gives the array back to the pool on close()
  
         // create a StringBuilder object
         // using StringBuilder(String) constructor
@@ -93,8 +98,11 @@ public class StringBuilder {
     
     String toString(): This method returns a string representing the data in this sequence.
     
-    void trimToSize(): This method attempts to reduce storage used for the character sequence. 
-         * 
+    void trimToSize(): This method attempts to reduce storage used for the character sequence.
+
+    insert(), delete(), deleteCharAt() and replace() shift everything after the edit, so they are O(n).
+    For big texts edited in the middle, RopeBuilder has the same methods backed by a balanced tree of pieces: O(log n) edits.
+         *
          */
     }
  }
@@ -0,0 +1,309 @@
+package basics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ * Maps strings to small int ids and back, with the strings and the hash table outside the heap.
+ *
+ * A record that keeps a product name as a String keeps a reference, and every name read from
+ * input is a String of its own until it is interned. With a vocabulary of a few thousand names
+ * over hundreds of millions of records, a record can keep the name's id instead, 4 bytes
+ * without a reference for the garbage collector to trace:
+ *
+ *   StringDictionary names = new StringDictionary();
+ *   int id = names.id(product.getName());      //the same id for every equal name
+ *   String name = names.string(id);
+ *
+ * Ids are 0, 1, 2, ... in the order the strings were first added. Everything lives in direct
+ * ByteBuffers: the chars of all strings one after the other in an arena, the offset and
+ * length of each id, and an open addressing hash table whose slots hold the hash of a string
+ * and its id + 1, 0 for an empty slot. The heap holds only the few objects around them.
+ *
+ * Lookups don't lock. The buffers and the number of ids are published together in a volatile
+ * State, and adding a string writes its chars, its offset and its slot before a new State
+ * with the new count is published. A reader only trusts an id below the count of the State it
+ * read, whose data is therefore complete, and compares the chars of a candidate with the
+ * string before returning its id. Adding is synchronized: id() looks the string up again under
+ * the lock when the lock-free lookup did not find it. A growing table or arena is copied into
+ * new buffers, readers of the old State keep using the old ones.
+ */
+public final class StringDictionary {
+
+	private static final int ENTRY_BYTES = 8;
+	private static final int SLOT_BYTES = 8;
+	private static final int MAX_ARENA = Integer.MAX_VALUE - 8;
+
+	//Everything a reader needs, replaced as a whole when something was added.
+	private static final class State {
+
+		final ByteBuffer arena;
+		final ByteBuffer entries;
+		final ByteBuffer table;
+		final int mask;
+		final int count;
+		final int used;
+
+		State(ByteBuffer arena, ByteBuffer entries, ByteBuffer table, int count, int used) {
+			this.arena = arena;
+			this.entries = entries;
+			this.table = table;
+			this.mask = table.capacity() / SLOT_BYTES - 1;
+			this.count = count;
+			this.used = used;
+		}
+	}
+
+	private volatile State state;
+
+	public StringDictionary() {
+		this(1 << 10, 1 << 16);
+	}
+
+	//"expectedStrings" sizes the table, "expectedChars" the arena, both grow when needed.
+	public StringDictionary(int expectedStrings, int expectedChars) {
+		if (expectedStrings < 0 || expectedChars < 0) {
+			throw new IllegalArgumentException("sizes must not be negative: " + expectedStrings + ", " + expectedChars);
+		}
+		int slots = Integer.highestOneBit(java.lang.Math.max(16, expectedStrings * 2 - 1)) << 1;
+		state = new State(allocate(java.lang.Math.max(2 * expectedChars, 64)), allocate(expectedStrings * ENTRY_BYTES + 64),
+				allocate(slots * SLOT_BYTES), 0, 0);
+	}
+
+	private static ByteBuffer allocate(int bytes) {
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+	}
+
+	//Spreads the bits of String.hashCode(), whose low bits alone pick the slot.
+	private static int hash(CharSequence text) {
+		int h;
+		if (text instanceof String) {
+			h = text.hashCode();
+		} else {
+			h = 0;
+			for (int i = 0; i < text.length(); i++) {
+				h = 31 * h + text.charAt(i);
+			}
+		}
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	//The id of the text, adding it if it is new.
+	public int id(CharSequence text) {
+		int hash = hash(text);
+		int id = find(state, text, hash);
+		return id >= 0 ? id : add(text, hash);
+	}
+
+	//The id of the text, or -1 if it was never added.
+	public int find(CharSequence text) {
+		int hash = hash(text);
+		int id = find(state, text, hash);
+		if (id >= 0) {
+			return id;
+		}
+		//the lock-free lookup can miss a string that is being added right now
+		synchronized (this) {
+			return find(state, text, hash);
+		}
+	}
+
+	private static int find(State current, CharSequence text, int hash) {
+		ByteBuffer table = current.table;
+		for (int slot = hash & current.mask;; slot = (slot + 1) & current.mask) {
+			int idPlusOne = table.getInt(slot * SLOT_BYTES + 4);
+			if (idPlusOne == 0) {
+				return -1;
+			}
+			int id = idPlusOne - 1;
+			if (id < current.count && table.getInt(slot * SLOT_BYTES) == hash && matches(current, id, text)) {
+				return id;
+			}
+		}
+	}
+
+	private static boolean matches(State current, int id, CharSequence text) {
+		int offset = current.entries.getInt(id * ENTRY_BYTES);
+		int length = current.entries.getInt(id * ENTRY_BYTES + 4);
+		if (length != text.length()) {
+			return false;
+		}
+		ByteBuffer arena = current.arena;
+		for (int i = 0; i < length; i++) {
+			if (arena.getChar(offset + 2 * i) != text.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private synchronized int add(CharSequence text, int hash) {
+		State current = state;
+		int id = find(current, text, hash);
+		if (id >= 0) {
+			return id;
+		}
+		id = current.count;
+		if (id == Integer.MAX_VALUE - 1) {
+			throw new IllegalStateException("dictionary is full");
+		}
+		int length = text.length();
+		long needed = current.used + 2L * length;
+		if (needed > MAX_ARENA) {
+			throw new IllegalStateException("dictionary is full, its strings take " + current.used + " bytes");
+		}
+		ByteBuffer arena = current.arena;
+		if (needed > arena.capacity()) {
+			arena = copy(arena, current.used, (int) java.lang.Math.min(java.lang.Math.max(needed, 2L * arena.capacity()), MAX_ARENA));
+		}
+		ByteBuffer entries = current.entries;
+		if ((id + 1L) * ENTRY_BYTES > entries.capacity()) {
+			entries = copy(entries, id * ENTRY_BYTES, (int) java.lang.Math.min(2L * entries.capacity(), Integer.MAX_VALUE - 8));
+		}
+		ByteBuffer table = current.table;
+		int mask = current.mask;
+		if (2L * (id + 1) > mask + 1) {
+			table = rehash(current, 2 * (mask + 1));
+			mask = table.capacity() / SLOT_BYTES - 1;
+		}
+		for (int i = 0; i < length; i++) {
+			arena.putChar(current.used + 2 * i, text.charAt(i));
+		}
+		entries.putInt(id * ENTRY_BYTES, current.used);
+		entries.putInt(id * ENTRY_BYTES + 4, length);
+		int slot = hash & mask;
+		while (table.getInt(slot * SLOT_BYTES + 4) != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table.putInt(slot * SLOT_BYTES, hash);
+		table.putInt(slot * SLOT_BYTES + 4, id + 1);
+		state = new State(arena, entries, table, id + 1, (int) needed);
+		return id;
+	}
+
+	private static ByteBuffer copy(ByteBuffer from, int bytes, int capacity) {
+		ByteBuffer to = allocate(capacity);
+		ByteBuffer source = from.duplicate();
+		source.clear().limit(bytes);
+		to.put(source);
+		to.clear();
+		return to;
+	}
+
+	//A table with "slots" slots holding the ids of "current", with the hashes recomputed from the arena.
+	private static ByteBuffer rehash(State current, int slots) {
+		if (slots <= 0) {
+			throw new IllegalStateException("dictionary is full");
+		}
+		ByteBuffer table = allocate(slots * SLOT_BYTES);
+		int mask = slots - 1;
+		for (int id = 0; id < current.count; id++) {
+			int hash = hash(new Chars(current, id));
+			int slot = hash & mask;
+			while (table.getInt(slot * SLOT_BYTES + 4) != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table.putInt(slot * SLOT_BYTES, hash);
+			table.putInt(slot * SLOT_BYTES + 4, id + 1);
+		}
+		return table;
+	}
+
+	public String string(int id) {
+		State current = state;
+		checkId(current, id);
+		int offset = current.entries.getInt(id * ENTRY_BYTES);
+		char[] chars = new char[current.entries.getInt(id * ENTRY_BYTES + 4)];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = current.arena.getChar(offset + 2 * i);
+		}
+		return new String(chars);
+	}
+
+	//The chars of the id as a CharSequence that reads them from the arena, without a copy on the heap.
+	public CharSequence chars(int id) {
+		State current = state;
+		checkId(current, id);
+		return new Chars(current, id);
+	}
+
+	public int length(int id) {
+		State current = state;
+		checkId(current, id);
+		return current.entries.getInt(id * ENTRY_BYTES + 4);
+	}
+
+	private static void checkId(State current, int id) {
+		if (id < 0 || id >= current.count) {
+			throw new IndexOutOfBoundsException("id " + id + ", size " + current.count);
+		}
+	}
+
+	//The number of ids.
+	public int size() {
+		return state.count;
+	}
+
+	//The bytes of the direct buffers, allocated and not yet used included.
+	public long offHeapBytes() {
+		State current = state;
+		return (long) current.arena.capacity() + current.entries.capacity() + current.table.capacity();
+	}
+
+	@Override
+	public String toString() {
+		State current = state;
+		return "StringDictionary[" + current.count + " strings, " + current.used / 2 + " chars]";
+	}
+
+	//The chars of one id in the arena of one State, which never changes below its "used".
+	private static final class Chars implements CharSequence {
+
+		private final ByteBuffer arena;
+		private final int offset;
+		private final int length;
+
+		Chars(State state, int id) {
+			this.arena = state.arena;
+			this.offset = state.entries.getInt(id * ENTRY_BYTES);
+			this.length = state.entries.getInt(id * ENTRY_BYTES + 4);
+		}
+
+		private Chars(ByteBuffer arena, int offset, int length) {
+			this.arena = arena;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+			}
+			return arena.getChar(offset + 2 * index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if (start < 0 || start > end || end > length) {
+				throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+			}
+			return new Chars(arena, offset + 2 * start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			char[] chars = new char[length];
+			for (int i = 0; i < length; i++) {
+				chars[i] = arena.getChar(offset + 2 * i);
+			}
+			return new String(chars);
+		}
+	}
+}
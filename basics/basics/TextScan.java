@@ -0,0 +1,299 @@
+package basics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ * Finds, counts, classifies and transforms chars in bulk, without an IntStream.
+ *
+ * "text".chars().filter(c -> ...).count() boxes nothing but still makes a lambda call per char
+ * through several stream stages. The methods here are plain loops:
+ *
+ * - over a String or CharSequence they test each char against a CharClass bit mask, and
+ *   transforms write into one char[] that becomes the result String
+ * - over a byte[] (ASCII, Latin-1 or UTF-8 text) they work on eight bytes at a time, read as
+ *   one long with ByteBuffer.getLong(), using SWAR bit tricks: a byte equal to b is a zero
+ *   byte of word ^ (b * 0x0101010101010101), and zero bytes, non-ASCII bytes and the case of
+ *   ASCII letters can be found for all eight bytes with a few arithmetic operations
+ *
+ * In UTF-8 every byte of a multi-byte char is above 0x7F, so searching for an ASCII byte or
+ * changing the case of ASCII letters works on UTF-8 bytes without decoding them.
+ */
+public final class TextScan {
+
+	private static final long ONES = 0x0101010101010101L;
+	private static final long HIGHS = 0x8080808080808080L;
+	private static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+	private static final int CHUNK = 1024;
+
+	private TextScan() {
+	}
+
+	//The index of the first char of text in the class at or after "from", or -1.
+	public static int indexOf(CharSequence text, CharClass chars, int from) {
+		int length = text.length();
+		int single = chars.single();
+		if (single >= 0 && text instanceof String) {
+			return ((String) text).indexOf(single, java.lang.Math.max(from, 0));
+		}
+		char[] chunk = new char[java.lang.Math.min(CHUNK, length)];
+		for (int start = java.lang.Math.max(from, 0); start < length; start += CHUNK) {
+			int count = copy(text, start, length, chunk);
+			for (int i = 0; i < count; i++) {
+				if (chars.contains(chunk[i])) {
+					return start + i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	public static int count(CharSequence text, CharClass chars) {
+		int length = text.length();
+		char[] chunk = new char[java.lang.Math.min(CHUNK, length)];
+		int single = chars.single();
+		int found = 0;
+		for (int start = 0; start < length; start += CHUNK) {
+			int count = copy(text, start, length, chunk);
+			if (single >= 0) {
+				//a compare with a constant is much cheaper than a lookup in the mask
+				for (int i = 0; i < count; i++) {
+					if (chunk[i] == single) {
+						found++;
+					}
+				}
+				continue;
+			}
+			for (int i = 0; i < count; i++) {
+				if (chars.contains(chunk[i])) {
+					found++;
+				}
+			}
+		}
+		return found;
+	}
+
+	//Whether all chars of text are in the class, true for an empty text.
+	public static boolean all(CharSequence text, CharClass chars) {
+		return indexOf(text, chars.negate(), 0) < 0;
+	}
+
+	//The chars of text that are in the class.
+	public static String retain(CharSequence text, CharClass chars) {
+		char[] result = toCharArray(text);
+		int length = 0;
+		for (char c : result) {
+			if (chars.contains(c)) {
+				result[length++] = c;
+			}
+		}
+		return new String(result, 0, length);
+	}
+
+	public static String remove(CharSequence text, CharClass chars) {
+		return retain(text, chars.negate());
+	}
+
+	//Every char in the class replaced with "replacement".
+	public static String replace(CharSequence text, CharClass chars, char replacement) {
+		char[] result = toCharArray(text);
+		for (int i = 0; i < result.length; i++) {
+			if (chars.contains(result[i])) {
+				result[i] = replacement;
+			}
+		}
+		return new String(result);
+	}
+
+	/*
+	 * Every run of chars in the class replaced with one "replacement" and runs at the start and
+	 * the end removed, e.g. collapse(text, CharClass.WHITESPACE, ' ') to clean up spacing.
+	 */
+	public static String collapse(CharSequence text, CharClass chars, char replacement) {
+		char[] result = toCharArray(text);
+		int length = 0;
+		boolean inRun = true;
+		for (char c : result) {
+			if (chars.contains(c)) {
+				inRun = true;
+			} else {
+				if (inRun && length > 0) {
+					result[length++] = replacement;
+				}
+				inRun = false;
+				result[length++] = c;
+			}
+		}
+		return new String(result, 0, length);
+	}
+
+	//Lower case for 'A'..'Z' only, other chars are left as they are.
+	public static String toLowerAscii(CharSequence text) {
+		char[] result = toCharArray(text);
+		for (int i = 0; i < result.length; i++) {
+			char c = result[i];
+			if (c >= 'A' && c <= 'Z') {
+				result[i] = (char) (c | 0x20);
+			}
+		}
+		return new String(result);
+	}
+
+	public static String toUpperAscii(CharSequence text) {
+		char[] result = toCharArray(text);
+		for (int i = 0; i < result.length; i++) {
+			char c = result[i];
+			if (c >= 'a' && c <= 'z') {
+				result[i] = (char) (c & ~0x20);
+			}
+		}
+		return new String(result);
+	}
+
+	//Copies the chunk of text at "start" and returns its length. A bulk copy and an array loop beat charAt().
+	private static int copy(CharSequence text, int start, int length, char[] chunk) {
+		int end = java.lang.Math.min(start + chunk.length, length);
+		if (text instanceof String) {
+			((String) text).getChars(start, end, chunk, 0);
+		} else if (text instanceof java.lang.StringBuilder) {
+			((java.lang.StringBuilder) text).getChars(start, end, chunk, 0);
+		} else {
+			for (int i = start; i < end; i++) {
+				chunk[i - start] = text.charAt(i);
+			}
+		}
+		return end - start;
+	}
+
+	private static char[] toCharArray(CharSequence text) {
+		int length = text.length();
+		char[] chars = new char[length];
+		if (text instanceof String) {
+			((String) text).getChars(0, length, chars, 0);
+		} else if (text instanceof java.lang.StringBuilder) {
+			((java.lang.StringBuilder) text).getChars(0, length, chars, 0);
+		} else {
+			for (int i = 0; i < length; i++) {
+				chars[i] = text.charAt(i);
+			}
+		}
+		return chars;
+	}
+
+	//Little endian, so byte i of a word is bits 8*i..8*i+7 and the first match is the lowest set bit.
+	private static ByteBuffer words(byte[] bytes) {
+		return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	//0x80 in every byte of the word that is zero, 0 in all others.
+	private static long zeroBytes(long word) {
+		long low7 = (word & LOWS) + LOWS;
+		return ~(low7 | word | LOWS);
+	}
+
+	//The index of the first byte equal to b in bytes[from, to), or -1.
+	public static int indexOf(byte[] bytes, int from, int to, byte b) {
+		checkRange(bytes, from, to);
+		ByteBuffer words = words(bytes);
+		long pattern = (b & 0xFFL) * ONES;
+		int i = from;
+		for (; i + 8 <= to; i += 8) {
+			long found = zeroBytes(words.getLong(i) ^ pattern);
+			if (found != 0) {
+				return i + (Long.numberOfTrailingZeros(found) >>> 3);
+			}
+		}
+		for (; i < to; i++) {
+			if (bytes[i] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	//The number of bytes equal to b in bytes[from, to), e.g. the lines of a text with b = '\n'.
+	public static int count(byte[] bytes, int from, int to, byte b) {
+		checkRange(bytes, from, to);
+		ByteBuffer words = words(bytes);
+		long pattern = (b & 0xFFL) * ONES;
+		int count = 0;
+		int i = from;
+		for (; i + 8 <= to; i += 8) {
+			count += Long.bitCount(zeroBytes(words.getLong(i) ^ pattern));
+		}
+		for (; i < to; i++) {
+			if (bytes[i] == b) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	//Whether no byte of bytes[from, to) has its high bit set.
+	public static boolean isAscii(byte[] bytes, int from, int to) {
+		return indexOfNonAscii(bytes, from, to) < 0;
+	}
+
+	//The index of the first byte above 0x7F, where ASCII ends and a UTF-8 sequence may start, or -1.
+	public static int indexOfNonAscii(byte[] bytes, int from, int to) {
+		checkRange(bytes, from, to);
+		ByteBuffer words = words(bytes);
+		int i = from;
+		for (; i + 8 <= to; i += 8) {
+			long high = words.getLong(i) & HIGHS;
+			if (high != 0) {
+				return i + (Long.numberOfTrailingZeros(high) >>> 3);
+			}
+		}
+		for (; i < to; i++) {
+			if (bytes[i] < 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	//Copies src[from, to) to dst at dstFrom with 'A'..'Z' in lower case. src and dst may be the same range of one array.
+	public static void toLowerAscii(byte[] src, int from, int to, byte[] dst, int dstFrom) {
+		changeCase(src, from, to, dst, dstFrom, 'A', true);
+	}
+
+	public static void toUpperAscii(byte[] src, int from, int to, byte[] dst, int dstFrom) {
+		changeCase(src, from, to, dst, dstFrom, 'a', false);
+	}
+
+	/*
+	 * Adding 0x80 - 'A' to the low seven bits of a byte sets its high bit if the byte is at
+	 * least 'A', adding 0x80 - ('Z' + 1) sets it if the byte is past 'Z'. Together, and masked
+	 * with the bytes that were ASCII, the high bits mark the letters, and shifting them down
+	 * by two gives the 0x20 that makes the difference between upper and lower case.
+	 */
+	private static void changeCase(byte[] src, int from, int to, byte[] dst, int dstFrom, char first,
+			boolean toLower) {
+		checkRange(src, from, to);
+		checkRange(dst, dstFrom, dstFrom + (to - from));
+		ByteBuffer in = words(src);
+		ByteBuffer out = words(dst);
+		long atLeastFirst = (0x80 - first) * ONES;
+		long pastLast = (0x80 - (first + 26)) * ONES;
+		int i = from;
+		int j = dstFrom;
+		for (; i + 8 <= to; i += 8, j += 8) {
+			long word = in.getLong(i);
+			long low7 = word & LOWS;
+			long letters = (low7 + atLeastFirst) & ~(low7 + pastLast) & ~word & HIGHS;
+			out.putLong(j, toLower ? word | letters >>> 2 : word & ~(letters >>> 2));
+		}
+		for (; i < to; i++, j++) {
+			byte b = src[i];
+			boolean letter = b >= first && b < first + 26;
+			dst[j] = letter ? (byte) (toLower ? b | 0x20 : b & ~0x20) : b;
+		}
+	}
+
+	private static void checkRange(byte[] bytes, int from, int to) {
+		if (from < 0 || from > to || to > bytes.length) {
+			throw new IndexOutOfBoundsException("from " + from + ", to " + to + ", length " + bytes.length);
+		}
+	}
+}
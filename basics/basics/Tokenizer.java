@@ -0,0 +1,264 @@
+package basics;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * Splits a text around a delimiter into a stream of tokens that can run in parallel.
+ *
+ * Pattern.compile(", ").splitAsStream(text) finds one match after the other, so its
+ * spliterator can only hand out batches of tokens it has already found, and a parallel stream
+ * over a huge text does most of the work on one thread. A Tokenizer splits the text itself:
+ * it looks for a delimiter near the middle of a range and cuts the range there, so each half
+ * starts and ends on a token boundary and is split again in its own task.
+ *
+ *   long words = Tokenizer.of(", ").tokens(text).parallel().filter(token -> token.length() > 3).count();
+ *
+ * - tokens are CharSlices of the text, no String is made per token
+ * - of() keeps compiled tokenizers in a cache, so calling it in a loop doesn't compile again
+ * - a delimiter without regex metacharacters, or one given to literal(), is searched for
+ *   with a plain char comparison (String.indexOf() for a String) instead of a Matcher
+ *
+ * The tokens are those of text.split(delimiter, -1): n delimiters give n + 1 tokens, empty
+ * ones included, also a trailing empty token that splitAsStream() would drop. Delimiter
+ * matches must not be empty, empty matches are ignored. A cut is only made where the
+ * sequential search would find the same delimiter, which is checked by looking for a match
+ * that starts shortly before the cut and ends after it. For a literal this check is exact,
+ * for a regex it looks 64 chars back, so its matches should not be longer than that.
+ */
+public final class Tokenizer {
+
+	static final int MIN_SPLIT = 1 << 12;
+	static final int REGEX_WINDOW = 64;
+
+	private static final int CACHE_SIZE = 256;
+	private static final Map<String, Tokenizer> CACHE = new ConcurrentHashMap<>();
+	private static final String METACHARACTERS = "\\[](){}.*+?^$|";
+
+	private final String literal;
+	private final Pattern pattern;
+
+	private Tokenizer(String literal, Pattern pattern) {
+		this.literal = literal;
+		this.pattern = pattern;
+	}
+
+	//A tokenizer for the regex, from the cache if there is one.
+	public static Tokenizer of(String regex) {
+		Tokenizer tokenizer = CACHE.get(regex);
+		if (tokenizer == null) {
+			tokenizer = isLiteral(regex) ? literal(regex) : new Tokenizer(null, Pattern.compile(regex));
+			if (CACHE.size() >= CACHE_SIZE) {
+				CACHE.clear();
+			}
+			CACHE.putIfAbsent(regex, tokenizer);
+		}
+		return tokenizer;
+	}
+
+	public static Tokenizer of(Pattern pattern) {
+		return new Tokenizer(null, Objects.requireNonNull(pattern, "pattern"));
+	}
+
+	public static Tokenizer literal(String delimiter) {
+		if (delimiter.isEmpty()) {
+			throw new IllegalArgumentException("delimiter must not be empty");
+		}
+		return new Tokenizer(delimiter, null);
+	}
+
+	private static boolean isLiteral(String regex) {
+		if (regex.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < regex.length(); i++) {
+			if (METACHARACTERS.indexOf(regex.charAt(i)) >= 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public boolean isLiteral() {
+		return literal != null;
+	}
+
+	public Stream<CharSequence> tokens(CharSequence text) {
+		return StreamSupport.stream(new Tokens(text, 0, text.length()), false);
+	}
+
+	@Override
+	public String toString() {
+		return literal != null ? "Tokenizer[literal " + literal + "]" : "Tokenizer[regex " + pattern + "]";
+	}
+
+	//Finds delimiters in one text, remembering the bounds of the last one found.
+	private final class Finder {
+
+		private final CharSequence text;
+		private final Matcher matcher;
+		int start;
+		int end;
+
+		Finder(CharSequence text) {
+			this.text = text;
+			this.matcher = pattern == null ? null
+					: pattern.matcher(text).useTransparentBounds(true).useAnchoringBounds(false);
+		}
+
+		//The first delimiter starting at or after "from" and ending by "limit".
+		boolean find(int from, int limit) {
+			if (matcher == null) {
+				int index = indexOf(from, limit - literal.length());
+				if (index < 0) {
+					return false;
+				}
+				start = index;
+				end = index + literal.length();
+				return true;
+			}
+			matcher.region(from, limit);
+			while (matcher.find()) {
+				if (matcher.end() > matcher.start()) {
+					start = matcher.start();
+					end = matcher.end();
+					return true;
+				}
+			}
+			return false;
+		}
+
+		//Whether a delimiter starts exactly at "at".
+		boolean matchAt(int at, int limit) {
+			if (matcher == null) {
+				if (at + literal.length() > limit || text.charAt(at) != literal.charAt(0) || !matchesRest(at)) {
+					return false;
+				}
+				start = at;
+				end = at + literal.length();
+				return true;
+			}
+			matcher.region(at, limit);
+			if (matcher.lookingAt() && matcher.end() > at) {
+				start = at;
+				end = matcher.end();
+				return true;
+			}
+			return false;
+		}
+
+		//The first start of the literal in [from, lastStart], or -1.
+		private int indexOf(int from, int lastStart) {
+			if (from > lastStart) {
+				return -1;
+			}
+			if (text instanceof String) {
+				int index = ((String) text).indexOf(literal, from);
+				return index > lastStart ? -1 : index;
+			}
+			char first = literal.charAt(0);
+			for (int i = from; i <= lastStart; i++) {
+				if (text.charAt(i) == first && matchesRest(i)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private boolean matchesRest(int at) {
+			for (int j = 1; j < literal.length(); j++) {
+				if (text.charAt(at + j) != literal.charAt(j)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	//The tokens of text[pos, end), which begins and ends on a token boundary.
+	private final class Tokens implements Spliterator<CharSequence> {
+
+		private final CharSequence text;
+		private final int end;
+		private int pos;
+		private boolean done;
+		private Finder finder;
+
+		Tokens(CharSequence text, int pos, int end) {
+			this.text = text;
+			this.pos = pos;
+			this.end = end;
+		}
+
+		private Finder finder() {
+			if (finder == null) {
+				finder = new Finder(text);
+			}
+			return finder;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super CharSequence> action) {
+			if (done) {
+				return false;
+			}
+			Finder delimiter = finder();
+			if (delimiter.find(pos, end)) {
+				action.accept(new CharSlice(text, pos, delimiter.start));
+				pos = delimiter.end;
+			} else {
+				action.accept(new CharSlice(text, pos, end));
+				done = true;
+			}
+			return true;
+		}
+
+		@Override
+		public Spliterator<CharSequence> trySplit() {
+			if (done || end - pos < MIN_SPLIT) {
+				return null;
+			}
+			Finder delimiter = finder();
+			int from = pos + (end - pos) / 2;
+			for (int tries = 0; tries < 8 && delimiter.find(from, end); tries++) {
+				int cutStart = delimiter.start;
+				int cutEnd = delimiter.end;
+				if (!overlapped(delimiter, cutStart)) {
+					Tokens prefix = new Tokens(text, pos, cutStart);
+					pos = cutEnd;
+					return prefix;
+				}
+				from = cutStart + 1;
+			}
+			return null;
+		}
+
+		//Whether a delimiter starting before "cut" reaches past it, so the sequential search would not stop at cut.
+		private boolean overlapped(Finder delimiter, int cut) {
+			int window = literal != null ? literal.length() - 1 : REGEX_WINDOW;
+			for (int at = java.lang.Math.max(pos, cut - window); at < cut; at++) {
+				if (delimiter.matchAt(at, end) && delimiter.end > cut) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public long estimateSize() {
+			return done ? 0 : (end - pos) / 8 + 1;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL;
+		}
+	}
+}
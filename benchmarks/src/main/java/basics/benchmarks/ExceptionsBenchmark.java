@@ -0,0 +1,87 @@
+package basics.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import basics.Exceptions;
+
+/*
+ * Compares the ways Exceptions can report a failure in a hot loop: new Exception(), a
+ * StacklessException, one preallocated StacklessException and a Result without any throw.
+ *
+ * Every call fails and is handled by its caller, as in a validation loop where most values
+ * are rejected. The cost of fillInStackTrace() grows with the depth of the stack, so each
+ * approach runs directly and again "depth" frames deeper. Every benchmark runs in JVMs of its
+ * own, so the call of check.run() in atDepth() only ever sees the one lambda of its benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ExceptionsBenchmark {
+
+	private interface Check {
+		long run() throws Exception;
+	}
+
+	@Param({ "0", "32" })
+	int depth;
+
+	private final Exceptions exceptions = new Exceptions();
+
+	@Benchmark
+	public long newException() {
+		return caught(depth, () -> {
+			exceptions.mustThrow();
+			return 0;
+		});
+	}
+
+	@Benchmark
+	public long stackless() {
+		return caught(depth, () -> {
+			exceptions.mustThrowStackless();
+			return 0;
+		});
+	}
+
+	@Benchmark
+	public long preallocated() {
+		return caught(depth, () -> {
+			exceptions.mustThrowPreallocated();
+			return 0;
+		});
+	}
+
+	@Benchmark
+	public long result() {
+		return caught(depth, () -> exceptions.mustFail().isOk() ? 0 : 1);
+	}
+
+	private static long caught(int depth, Check check) {
+		try {
+			return atDepth(depth, check);
+		} catch (Exception e) {
+			return 1;
+		}
+	}
+
+	private static long atDepth(int depth, Check check) throws Exception {
+		if (depth == 0) {
+			return check.run();
+		}
+		return atDepth(depth - 1, check) + depth;
+	}
+}
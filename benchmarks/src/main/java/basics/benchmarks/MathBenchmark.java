@@ -0,0 +1,327 @@
+package basics.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import basics.FastMath;
+import basics.Math;
+
+/*
+ * The functions of basics.Math, the transcendental ones against FastMath, one method per
+ * function so every call site sees one target, and the bulk array versions of basics.Math.
+ * The scalar methods report the time of one call, the bulk ones of a whole array of
+ * {@value #VALUES} values. abs, round, ceil, floor, rint, min and max get values in
+ * [-4.9, 5), the others in [0.1, 10).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MathBenchmark {
+
+	static final int VALUES = 1024;
+
+	double[] input;
+	double[] signed;
+	double[] output;
+	double[] minMax;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		input = new double[VALUES];
+		signed = new double[VALUES];
+		for (int i = 0; i < VALUES; i++) {
+			input[i] = 0.1 + 9.9 * random.nextDouble();
+			signed[i] = input[i] - 5;
+		}
+		output = new double[VALUES];
+		minMax = new double[2];
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathAbs(Blackhole bh) {
+		for (double x : signed) {
+			bh.consume(Math.abs(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathRound(Blackhole bh) {
+		for (double x : signed) {
+			bh.consume(Math.round(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathCeil(Blackhole bh) {
+		for (double x : signed) {
+			bh.consume(Math.ceil(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathFloor(Blackhole bh) {
+		for (double x : signed) {
+			bh.consume(Math.floor(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathRint(Blackhole bh) {
+		for (double x : signed) {
+			bh.consume(Math.rint(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathMin(Blackhole bh) {
+		for (double x : signed) {
+			bh.consume(Math.min(x, 0.5));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathMax(Blackhole bh) {
+		for (double x : signed) {
+			bh.consume(Math.max(x, 0.5));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathSqrt(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(Math.sqrt(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathCbrt(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(Math.cbrt(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void fastMathCbrt(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(FastMath.cbrt(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathExp(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(Math.exp(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void fastMathExp(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(FastMath.exp(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathLog(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(Math.log(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void fastMathLog(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(FastMath.log(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathLog10(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(Math.log10(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void fastMathLog10(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(FastMath.log10(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathSin(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(Math.sin(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void fastMathSin(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(FastMath.sin(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathCos(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(Math.cos(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void fastMathCos(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(FastMath.cos(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathTan(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(Math.tan(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void fastMathTan(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(FastMath.tan(x));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathPow(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(Math.pow(x, 2.5));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void fastMathPow(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(FastMath.pow(x, 2.5));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathAtan2(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(Math.atan2(x, 3.0));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void fastMathAtan2(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(FastMath.atan2(x, 3.0));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void mathHypot(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(Math.hypot(x, 3.0));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void fastMathHypot(Blackhole bh) {
+		for (double x : input) {
+			bh.consume(FastMath.hypot(x, 3.0));
+		}
+	}
+
+	@Benchmark
+	public double[] mathAbsArray() {
+		Math.abs(signed, output);
+		return output;
+	}
+
+	@Benchmark
+	public double[] mathSqrtArray() {
+		Math.sqrt(input, output);
+		return output;
+	}
+
+	@Benchmark
+	public double[] mathExpArray() {
+		Math.exp(input, output);
+		return output;
+	}
+
+	@Benchmark
+	public double[] mathLogArray() {
+		Math.log(input, output);
+		return output;
+	}
+
+	@Benchmark
+	public double[] mathPowArray() {
+		Math.pow(input, 2.5, output);
+		return output;
+	}
+
+	@Benchmark
+	public double mathMinArray() {
+		return Math.min(input);
+	}
+
+	@Benchmark
+	public double mathMaxArray() {
+		return Math.max(input);
+	}
+
+	@Benchmark
+	public double[] mathMinMaxArray() {
+		Math.minMax(input, minMax);
+		return minMax;
+	}
+}
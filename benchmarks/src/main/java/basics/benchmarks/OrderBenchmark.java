@@ -0,0 +1,63 @@
+package basics.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * skip() and filter() before map() against after it, as in the "order of execution" part of
+ * StreamApi. The terminal operation uses every element, count() could skip map() on a sized
+ * stream.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class OrderBenchmark {
+
+	static final int SIZE = 1000;
+
+	List<String> list;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		list = new ArrayList<>();
+		for (int i = 0; i < SIZE; i++) {
+			list.add("element" + i);
+		}
+	}
+
+	@Benchmark
+	public int mapThenSkip() {
+		return list.stream().map(word -> word.substring(0, 3)).skip(SIZE - 10).mapToInt(String::length).sum();
+	}
+
+	@Benchmark
+	public int skipThenMap() {
+		return list.stream().skip(SIZE - 10).map(word -> word.substring(0, 3)).mapToInt(String::length).sum();
+	}
+
+	@Benchmark
+	public long mapThenFilter() {
+		return list.stream().map(word -> word.substring(0, 3)).filter(word -> word.endsWith("9")).count();
+	}
+
+	@Benchmark
+	public long filterThenMap() {
+		return list.stream().filter(word -> word.endsWith("9")).map(word -> word.substring(0, 3)).count();
+	}
+}
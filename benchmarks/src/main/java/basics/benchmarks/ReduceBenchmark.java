@@ -0,0 +1,77 @@
+package basics.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import basics.ParallelReduce;
+
+/*
+ * Sequential against parallel reduce(), primitive and boxed, for a small and a large input,
+ * and ParallelReduce on the same numbers as a long[].
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ReduceBenchmark {
+
+	@Param({ "1000", "1000000" })
+	int size;
+
+	List<Integer> numbers;
+	long[] values;
+	ParallelReduce parallelReduce;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		numbers = new ArrayList<>(size);
+		values = new long[size];
+		for (int i = 0; i < size; i++) {
+			numbers.add(i);
+			values[i] = i + 1;
+		}
+		parallelReduce = ParallelReduce.common();
+	}
+
+	@Benchmark
+	public long sequentialLong() {
+		return LongStream.rangeClosed(1, size).reduce(0, Long::sum);
+	}
+
+	@Benchmark
+	public long parallelLong() {
+		return LongStream.rangeClosed(1, size).parallel().reduce(0, Long::sum);
+	}
+
+	@Benchmark
+	public int sequentialBoxed() {
+		return numbers.stream().reduce(0, Integer::sum);
+	}
+
+	@Benchmark
+	public int parallelBoxed() {
+		return numbers.parallelStream().reduce(0, Integer::sum);
+	}
+
+	@Benchmark
+	public long parallelReduceLongArray() {
+		return parallelReduce.reduce(values, 0, Long::sum);
+	}
+}
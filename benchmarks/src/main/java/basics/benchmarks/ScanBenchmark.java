@@ -0,0 +1,83 @@
+package basics.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import basics.CharClass;
+import basics.TextScan;
+
+/*
+ * Counting and cleaning chars with chars() streams against TextScan, on the comma separated
+ * text of 1000 words.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ScanBenchmark {
+
+	String csv;
+	byte[] bytes;
+	CharClass comma;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			text.append(i == 0 ? "" : ", ").append("element").append(i);
+		}
+		csv = text.toString();
+		bytes = csv.getBytes(StandardCharsets.UTF_8);
+		comma = CharClass.of(",");
+	}
+
+	@Benchmark
+	public long charsCount() {
+		return csv.chars().filter(c -> c == ',').count();
+	}
+
+	@Benchmark
+	public int textScanCount() {
+		return TextScan.count(csv, comma);
+	}
+
+	@Benchmark
+	public long charsCountLetters() {
+		return csv.chars().filter(Character::isLetter).count();
+	}
+
+	@Benchmark
+	public int textScanCountLetters() {
+		return TextScan.count(csv, CharClass.LETTER);
+	}
+
+	@Benchmark
+	public int textScanCountBytes() {
+		return TextScan.count(bytes, 0, bytes.length, (byte) ',');
+	}
+
+	@Benchmark
+	public int charsRetainLetters() {
+		return csv.chars().filter(Character::isLetter)
+				.collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).length();
+	}
+
+	@Benchmark
+	public int textScanRetain() {
+		return TextScan.retain(csv, CharClass.LETTER).length();
+	}
+}
@@ -0,0 +1,121 @@
+package basics.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import basics.MappedLines;
+
+/*
+ * Every way StreamApi creates a stream, each producing the same 1000 strings and summing
+ * their lengths.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SourceBenchmark {
+
+	static final int SIZE = 1000;
+
+	String[] words;
+	List<String> list;
+	String csv;
+	Pattern comma;
+	Path file;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		words = new String[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			words[i] = "element" + i;
+		}
+		list = Arrays.asList(words);
+		csv = String.join(", ", words);
+		comma = Pattern.compile(", ");
+		file = Files.createTempFile("source-benchmark", ".txt");
+		Files.write(file, list, StandardCharsets.UTF_8);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.delete(file);
+	}
+
+	@Benchmark
+	public int streamOf() {
+		return Stream.of(words).mapToInt(String::length).sum();
+	}
+
+	@Benchmark
+	public int arraysStream() {
+		return Arrays.stream(words).mapToInt(String::length).sum();
+	}
+
+	@Benchmark
+	public int collectionStream() {
+		return list.stream().mapToInt(String::length).sum();
+	}
+
+	@Benchmark
+	public int streamBuilder() {
+		Stream.Builder<String> builder = Stream.builder();
+		for (String word : words) {
+			builder.add(word);
+		}
+		return builder.build().mapToInt(String::length).sum();
+	}
+
+	@Benchmark
+	public int streamIterate() {
+		String[] source = words;
+		return Stream.iterate(0, n -> n + 1).limit(SIZE).mapToInt(n -> source[n].length()).sum();
+	}
+
+	@Benchmark
+	public int streamGenerate() {
+		String[] source = words;
+		int[] next = new int[1];
+		return Stream.generate(() -> source[next[0]++]).limit(SIZE).mapToInt(String::length).sum();
+	}
+
+	@Benchmark
+	public int patternSplitAsStream() {
+		return comma.splitAsStream(csv).mapToInt(String::length).sum();
+	}
+
+	@Benchmark
+	public int filesLines() throws IOException {
+		try (Stream<String> lines = Files.lines(file)) {
+			return lines.mapToInt(String::length).sum();
+		}
+	}
+
+	@Benchmark
+	public int mappedLines() throws IOException {
+		try (Stream<CharSequence> lines = MappedLines.lines(file)) {
+			return lines.mapToInt(CharSequence::length).sum();
+		}
+	}
+}
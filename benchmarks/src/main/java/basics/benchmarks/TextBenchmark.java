@@ -0,0 +1,66 @@
+package basics.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import basics.StringAccumulator;
+
+/*
+ * 10000 appends from a parallel stream into one shared StringBuffer and into a
+ * StringAccumulator, against a StringBuilder and a StringBuffer appended to from one thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class TextBenchmark {
+
+	static final int APPENDS = 10_000;
+
+	@Benchmark
+	public int stringBuilderSequential() {
+		StringBuilder sb = new StringBuilder();
+		IntStream.range(0, APPENDS).forEach(sb::append);
+		return sb.length();
+	}
+
+	@Benchmark
+	public int stringBufferSequential() {
+		StringBuffer sb = new StringBuffer();
+		IntStream.range(0, APPENDS).forEach(sb::append);
+		return sb.length();
+	}
+
+	@Benchmark
+	public int stringBufferContended() {
+		StringBuffer sb = new StringBuffer();
+		IntStream.range(0, APPENDS).parallel().forEach(sb::append);
+		return sb.length();
+	}
+
+	@Benchmark
+	public int stringAccumulatorUnorderedContended() {
+		StringAccumulator sb = StringAccumulator.unordered();
+		IntStream.range(0, APPENDS).parallel().forEach(sb::append);
+		return sb.toString().length();
+	}
+
+	@Benchmark
+	public int stringAccumulatorOrderedContended() {
+		StringAccumulator sb = StringAccumulator.ordered();
+		IntStream.range(0, APPENDS).parallel().forEach(sb::append);
+		return sb.toString().length();
+	}
+}